@@ -0,0 +1,237 @@
+package com.camping.audit;
+
+import com.camping.entity.OperationLog;
+import com.camping.mapper.OperationLogMapper;
+import com.camping.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 操作日志异步批量写入
+ * 日志在当前事务提交后进入有界无锁环形缓冲区（多生产者、单消费者），
+ * 后台线程凑满 batch-size 条或等待 flush-interval-ms 后批量插入。
+ * 缓冲区满时按 overflow 策略阻塞等待（block）或丢弃（drop）；关闭时写完缓冲区中的全部日志。
+ */
+@Component
+public class AuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final String OVERFLOW_DROP = "drop";
+
+    @Autowired
+    private OperationLogMapper operationLogMapper;
+
+    @Value("${camping.audit.capacity:8192}")
+    private int capacity;
+
+    @Value("${camping.audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${camping.audit.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${camping.audit.overflow:block}")
+    private String overflow;
+
+    @Value("${camping.audit.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private AtomicReferenceArray<OperationLog> slots;
+    private int mask;
+
+    /** 下一个待写入的序号，由生产者 CAS 领取 */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** 下一个待读取的序号，只由刷写线程推进 */
+    private volatile long head;
+
+    /** 正在 enqueue 中的生产者数，在读取 running 之前递增，发布或同步写入后递减 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    @PostConstruct
+    public void start() {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        running = true;
+        flusher = new Thread(this::flushLoop, "audit-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 关闭时停止接收并写完缓冲区
+     */
+    @PreDestroy
+    public void stop() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            logger.warn("Audit log flusher did not finish within {} ms, {} events pending",
+                    shutdownTimeoutMs, tail.get() - head);
+            return;
+        }
+        // 在 running 变为 false 之前已进入 enqueue 的生产者可能仍在领取或写入槽位，等它们发布完成；
+        // 之后进入的生产者会看到 running == false 并同步写入
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        if (inFlight.get() > 0) {
+            logger.warn("{} audit log producers still publishing after {} ms", inFlight.get(), shutdownTimeoutMs);
+        }
+        // 刷写线程退出后才入队的日志由这里补写
+        List<OperationLog> rest = new ArrayList<>();
+        drainTo(rest, Integer.MAX_VALUE);
+        if (!rest.isEmpty()) {
+            insert(rest);
+        }
+    }
+
+    /**
+     * 记录一条操作日志，在当前事务提交后入队；事务回滚时不记录
+     */
+    public void write(OperationLog log) {
+        TransactionUtil.afterCommit(() -> enqueue(log));
+    }
+
+    /**
+     * 队列与写入计数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", slots.length());
+        stats.put("pending", tail.get() - head);
+        stats.put("queued", queued.get());
+        stats.put("flushed", flushed.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("overflow", overflow);
+        return stats;
+    }
+
+    private void enqueue(OperationLog log) {
+        inFlight.incrementAndGet();
+        try {
+            if (!running) {
+                // 已停止接收，直接同步写入
+                insert(List.of(log));
+                return;
+            }
+            while (!offer(log)) {
+                if (OVERFLOW_DROP.equalsIgnoreCase(overflow)) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(flusher);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                if (!running) {
+                    insert(List.of(log));
+                    return;
+                }
+            }
+            queued.incrementAndGet();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private boolean offer(OperationLog log) {
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+
+        slots.set((int) seq & mask, log);
+        if (seq + 1 - head >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    /**
+     * 取出最多 max 条已发布的日志；生产者已领取序号但尚未写入的槽位留到下次
+     */
+    private void drainTo(List<OperationLog> batch, int max) {
+        long seq = head;
+        while (batch.size() < max) {
+            int slot = (int) seq & mask;
+            OperationLog log = slots.get(slot);
+            if (log == null) {
+                break;
+            }
+            slots.set(slot, null);
+            batch.add(log);
+            seq++;
+            head = seq;
+        }
+    }
+
+    private void flushLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        List<OperationLog> batch = new ArrayList<>(batchSize);
+        long batchStarted = 0;
+
+        while (running || tail.get() != head || !batch.isEmpty()) {
+            if (batch.isEmpty()) {
+                batchStarted = System.nanoTime();
+            }
+            drainTo(batch, batchSize);
+
+            boolean due = batch.size() >= batchSize
+                    || (!batch.isEmpty() && (!running || System.nanoTime() - batchStarted >= intervalNanos));
+            if (due) {
+                insert(batch);
+                batch = new ArrayList<>(batchSize);
+            } else if (running) {
+                LockSupport.parkNanos(batch.isEmpty() ? intervalNanos
+                        : intervalNanos - (System.nanoTime() - batchStarted));
+            } else {
+                // 停止中，等待已领取序号的生产者写入槽位
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void insert(List<OperationLog> batch) {
+        try {
+            operationLogMapper.insertBatch(batch);
+            flushed.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            logger.error("Failed to write {} operation logs", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.camping.auth;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * 已验证 Token 对应的当前用户
+ * 由 JwtAuthFilter 放入请求属性 ATTRIBUTE，控制器通过 @RequestAttribute 读取
+ */
+public final class AuthPrincipal {
+
+    public static final String ATTRIBUTE = "camping.principal";
+
+    private final Long userId;
+    private final String username;
+    private final String role;
+    private final long expiresAt;
+
+    private AuthPrincipal(Long userId, String username, String role, long expiresAt) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+        this.expiresAt = expiresAt;
+    }
+
+    static AuthPrincipal of(Claims claims) {
+        Number userId = (Number) claims.get("userId");
+        return new AuthPrincipal(userId != null ? userId.longValue() : null,
+                claims.get("username", String.class),
+                claims.get("role", String.class),
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    /**
+     * Token 过期时间（毫秒时间戳）
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,122 @@
+package com.camping.auth;
+
+import com.camping.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bearer Token 认证过滤器
+ * 每个请求最多验证一次 Authorization 头中的 Token，成功后把 AuthPrincipal 放入请求属性；
+ * 最近验证过的 Token 以 SHA-256 摘要为键缓存其声明（LRU，容量 claims-cache-size），
+ * 命中且未过期时跳过签名校验与 JSON 解析。
+ * 过滤器本身不拦截请求，Token 缺失或无效时只是不设置当前用户，由需要登录的接口自行拒绝。
+ */
+@Component
+public class JwtAuthFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Value("${camping.auth.claims-cache-size:1024}")
+    private int cacheSize;
+
+    private Map<ByteBuffer, AuthPrincipal> verified;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int capacity = Math.max(cacheSize, 1);
+        verified = Collections.synchronizedMap(new LinkedHashMap<ByteBuffer, AuthPrincipal>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, AuthPrincipal> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            AuthPrincipal principal = authenticate(header.substring(BEARER_PREFIX.length()).trim());
+            if (principal != null) {
+                request.setAttribute(AuthPrincipal.ATTRIBUTE, principal);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * 验证 Token，无效或已过期时返回 null
+     */
+    public AuthPrincipal authenticate(String token) {
+        if (token.isEmpty()) {
+            return null;
+        }
+        ByteBuffer key = digest(token);
+        AuthPrincipal cached = verified.get(key);
+        if (cached != null) {
+            if (cached.getExpiresAt() > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            verified.remove(key);
+            rejected.incrementAndGet();
+            return null;
+        }
+
+        misses.incrementAndGet();
+        try {
+            AuthPrincipal principal = AuthPrincipal.of(JwtUtil.parseToken(token));
+            if (principal.getUserId() == null) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            verified.put(key, principal);
+            return principal;
+        } catch (RuntimeException e) {
+            rejected.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * 缓存命中、未命中与拒绝次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", Math.max(cacheSize, 1));
+        stats.put("size", verified.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
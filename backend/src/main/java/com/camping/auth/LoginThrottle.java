@@ -0,0 +1,188 @@
+package com.camping.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 登录令牌桶限流
+ * 按用户名与客户端 IP 各维护一个令牌桶，每次登录尝试各消耗一个令牌，任一桶为空即拒绝且两个桶都不扣减。
+ * 桶保存在分段的有界 Map 中：键按哈希落到 stripes 个分段之一，每段独立加锁，
+ * 段内超过 max-keys-per-stripe 个键时淘汰最久未访问的桶（被淘汰的桶等同于满桶）。
+ */
+@Component
+public class LoginThrottle {
+
+    private static final String MESSAGE = "登录尝试过于频繁，请稍后再试";
+
+    @Value("${camping.login.username-burst:5}")
+    private int usernameBurst;
+
+    @Value("${camping.login.username-per-minute:5}")
+    private int usernamePerMinute;
+
+    @Value("${camping.login.ip-burst:20}")
+    private int ipBurst;
+
+    @Value("${camping.login.ip-per-minute:60}")
+    private int ipPerMinute;
+
+    @Value("${camping.login.stripes:64}")
+    private int stripeCount;
+
+    @Value("${camping.login.max-keys-per-stripe:1024}")
+    private int maxKeysPerStripe;
+
+    private Stripe[] stripes;
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        stripes = new Stripe[Math.max(stripeCount, 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(i, Math.max(maxKeysPerStripe, 1));
+        }
+    }
+
+    /**
+     * 为一次登录尝试消耗令牌，用户名或 IP 的桶为空时抛出 TooManyRequestsException。
+     * 两个桶都有令牌时才同时扣减，被限流的 IP 不会耗尽该用户名的令牌。
+     */
+    public void acquire(String username, String clientIp) throws TooManyRequestsException {
+        String userKey = username != null ? "u:" + username : null;
+        String ipKey = clientIp != null ? "ip:" + clientIp : null;
+        Stripe userStripe = userKey != null ? stripeOf(userKey) : null;
+        Stripe ipStripe = ipKey != null ? stripeOf(ipKey) : null;
+
+        // 按分段下标固定加锁顺序，避免两个请求交叉持锁死锁
+        Stripe first = userStripe;
+        Stripe second = ipStripe;
+        if (first == null || (second != null && second.index < first.index)) {
+            first = ipStripe;
+            second = userStripe;
+        }
+        long waitNanos = 0;
+        if (first != null) {
+            synchronized (first) {
+                if (second != null) {
+                    synchronized (second) {
+                        waitNanos = take(userStripe, userKey, ipStripe, ipKey);
+                    }
+                } else {
+                    waitNanos = take(userStripe, userKey, ipStripe, ipKey);
+                }
+            }
+        }
+        if (waitNanos > 0) {
+            throttled.incrementAndGet();
+            throw new TooManyRequestsException(MESSAGE, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        }
+        allowed.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        int keys = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                keys += stripe.size();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allowed", allowed.get());
+        stats.put("throttled", throttled.get());
+        stats.put("trackedKeys", keys);
+        return stats;
+    }
+
+    /**
+     * 调用方已持有相关分段锁：两个桶都有令牌时各扣一个并返回 0，否则不扣减，返回需等待的纳秒数
+     */
+    private long take(Stripe userStripe, String userKey, Stripe ipStripe, String ipKey) {
+        long now = System.nanoTime();
+        Bucket userBucket = userKey != null ? refill(userStripe, userKey, usernameBurst, usernamePerMinute, now) : null;
+        Bucket ipBucket = ipKey != null ? refill(ipStripe, ipKey, ipBurst, ipPerMinute, now) : null;
+        long waitNanos = 0;
+        if (userBucket != null) {
+            waitNanos = Math.max(waitNanos, userBucket.waitNanos(usernamePerMinute));
+        }
+        if (ipBucket != null) {
+            waitNanos = Math.max(waitNanos, ipBucket.waitNanos(ipPerMinute));
+        }
+        if (waitNanos > 0) {
+            return waitNanos;
+        }
+        if (userBucket != null) {
+            userBucket.tokens -= 1;
+        }
+        if (ipBucket != null) {
+            ipBucket.tokens -= 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 按经过的时间补充令牌，不存在的键按满桶创建
+     */
+    private static Bucket refill(Stripe stripe, String key, int burst, int perMinute, long now) {
+        Bucket bucket = stripe.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(burst, now);
+            stripe.put(key, bucket);
+        }
+        bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.updatedAt) / nanosPerToken(perMinute));
+        bucket.updatedAt = now;
+        return bucket;
+    }
+
+    private static double nanosPerToken(int perMinute) {
+        return 60_000_000_000d / Math.max(perMinute, 1);
+    }
+
+    private Stripe stripeOf(String key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    private static final class Bucket {
+
+        double tokens;
+        long updatedAt;
+
+        Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+
+        /**
+         * 有令牌时返回 0，否则返回距离下一个令牌的纳秒数
+         */
+        long waitNanos(int perMinute) {
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken(perMinute));
+        }
+    }
+
+    /**
+     * 单个分段：按访问顺序排列的有界 LinkedHashMap，由调用方持有分段锁
+     */
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+
+        private final int index;
+        private final int maxKeys;
+
+        Stripe(int index, int maxKeys) {
+            super(16, 0.75f, true);
+            this.index = index;
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxKeys;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.camping.auth;
+
+import com.camping.util.PasswordUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * BCrypt 计算专用的有界线程池
+ * 线程数默认等于 CPU 核数，等待队列长度为 queue-capacity；队列已满或等待超过 wait-timeout-ms 时
+ * 立即抛出 TooManyRequestsException，避免登录洪峰占满 Tomcat 工作线程。
+ * 新哈希统一使用 cost；cost 与目标不同的已有哈希在登录成功后异步重新加密。
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private static final String MESSAGE = "服务繁忙，请稍后再试";
+
+    /** BCrypt 目标 cost（log2 轮数），jbcrypt 默认为 10 */
+    @Value("${camping.password.cost:10}")
+    private int cost;
+
+    /** 启动时测量 [benchmark-min-cost, benchmark-max-cost] 内每个 cost 的单次哈希耗时，max 小于 min 时不测量 */
+    @Value("${camping.password.benchmark-min-cost:8}")
+    private int benchmarkMinCost;
+
+    @Value("${camping.password.benchmark-max-cost:12}")
+    private int benchmarkMaxCost;
+
+    @Value("${camping.password.threads:0}")
+    private int threads;
+
+    @Value("${camping.password.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${camping.password.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong verifySucceeded = new AtomicLong();
+    private final AtomicLong verifyFailed = new AtomicLong();
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rehashed = new AtomicLong();
+    private final AtomicLong rehashSkipped = new AtomicLong();
+
+    private volatile Map<Integer, Double> benchmarkMillis = Map.of();
+
+    @PostConstruct
+    public void init() {
+        if (cost < 4 || cost > 31) {
+            throw new IllegalStateException("camping.password.cost must be between 4 and 31: " + cost);
+        }
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                task -> {
+                    Thread thread = new Thread(task, "password-hasher-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 启动完成后在线程池中测量各 cost 的哈希耗时并写入日志，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        int min = Math.max(benchmarkMinCost, 4);
+        int max = Math.min(benchmarkMaxCost, 31);
+        if (max < min) {
+            return;
+        }
+        try {
+            executor.execute(() -> benchmark(min, max));
+        } catch (RejectedExecutionException e) {
+            logger.warn("BCrypt benchmark skipped: hasher queue is full");
+        }
+    }
+
+    /**
+     * 在线程池中校验密码
+     */
+    public boolean verify(String password, String encryptedPassword) throws TooManyRequestsException {
+        boolean matched = run(() -> PasswordUtil.verifyPassword(password, encryptedPassword));
+        (matched ? verifySucceeded : verifyFailed).incrementAndGet();
+        return matched;
+    }
+
+    /**
+     * 在线程池中以目标 cost 加密密码
+     */
+    public String hash(String password) throws TooManyRequestsException {
+        String encrypted = run(() -> PasswordUtil.encryptPassword(password, cost));
+        hashed.incrementAndGet();
+        return encrypted;
+    }
+
+    /**
+     * 已有哈希的 cost 是否与目标不同
+     */
+    public boolean needsRehash(String encryptedPassword) {
+        int current = PasswordUtil.costOf(encryptedPassword);
+        return current > 0 && current != cost;
+    }
+
+    /**
+     * 异步以目标 cost 重新加密，完成后在线程池线程中回调 onHashed；
+     * 队列已满时直接放弃，等下次登录再迁移
+     */
+    public void rehashAsync(String password, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onHashed.accept(PasswordUtil.encryptPassword(password, cost));
+                    rehashed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rehashSkipped.incrementAndGet();
+                    logger.warn("Password rehash failed: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rehashSkipped.incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", cost);
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", Math.max(queueCapacity, 1));
+        stats.put("verifySucceeded", verifySucceeded.get());
+        stats.put("verifyFailed", verifyFailed.get());
+        stats.put("hashed", hashed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("rehashed", rehashed.get());
+        stats.put("rehashSkipped", rehashSkipped.get());
+        stats.put("benchmarkMillis", benchmarkMillis);
+        return stats;
+    }
+
+    private void benchmark(int min, int max) {
+        // 预热一次，避免首轮计入类加载与 JIT 开销
+        PasswordUtil.encryptPassword("benchmark", min);
+        Map<Integer, Double> results = new LinkedHashMap<>();
+        for (int c = min; c <= max; c++) {
+            long start = System.nanoTime();
+            PasswordUtil.encryptPassword("benchmark", c);
+            double millis = (System.nanoTime() - start) / 1_000_000d;
+            results.put(c, millis);
+            logger.info("BCrypt cost {}: {} ms/hash{}", c, String.format("%.1f", millis), c == cost ? " (target)" : "");
+        }
+        benchmarkMillis = results;
+    }
+
+    private <T> T run(Callable<T> task) throws TooManyRequestsException {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new TooManyRequestsException(MESSAGE, 1);
+        }
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            throw new TooManyRequestsException(MESSAGE, 1);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.camping.auth;
+
+/**
+ * 登录限流或密码哈希线程池已满时抛出，控制器据此返回 HTTP 429
+ */
+public class TooManyRequestsException extends Exception {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(retryAfterSeconds, 1);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,237 @@
+package com.camping.cache;
+
+import com.camping.entity.DailyPrice;
+import com.camping.entity.SiteType;
+import com.camping.mapper.DailyPriceMapper;
+import com.camping.util.TransactionUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 房型价格日历
+ * 以分为单位把每晚价格存入 long 数组并维护前缀和，任意入住区间的总价 O(1) 得出。
+ * 每个房型一次 selectByTypeAndDateRange 加载 [今天, 今天 + horizonDays)，
+ * 未设置日价的夜晚使用 SiteType.basePrice；改价后需调用 invalidate。
+ */
+@Component
+public class PriceCalendar {
+
+    @Autowired
+    private DailyPriceMapper dailyPriceMapper;
+
+    @Value("${camping.price-calendar.horizon-days:400}")
+    private int horizonDays;
+
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+    /** 每次失效递增，加载期间发生失效的结果不入缓存 */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * [checkIn, checkOut) 的住宿总价
+     */
+    public BigDecimal stayTotal(SiteType type, String checkIn, String checkOut) {
+        long from = LocalDate.parse(checkIn).toEpochDay();
+        long to = LocalDate.parse(checkOut).toEpochDay();
+        if (to <= from) {
+            return BigDecimal.valueOf(0, 2);
+        }
+        return BigDecimal.valueOf(window(type, from, to).sumCents(from, to), 2);
+    }
+
+    /**
+     * [checkIn, checkOut) 内每晚的价格
+     */
+    public BigDecimal[] nightlyPrices(SiteType type, String checkIn, String checkOut) {
+        long from = LocalDate.parse(checkIn).toEpochDay();
+        long to = LocalDate.parse(checkOut).toEpochDay();
+        if (to <= from) {
+            return new BigDecimal[0];
+        }
+        Window window = window(type, from, to);
+        BigDecimal[] prices = new BigDecimal[(int) (to - from)];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = BigDecimal.valueOf(window.cents(from + i), 2);
+        }
+        return prices;
+    }
+
+    /**
+     * 指定日期当晚的价格
+     */
+    public BigDecimal nightlyPrice(SiteType type, String date) {
+        long day = LocalDate.parse(date).toEpochDay();
+        return BigDecimal.valueOf(window(type, day, day + 1).cents(day), 2);
+    }
+
+    /**
+     * 多个房型 [checkIn, checkOut) 内每晚的价格（分）；
+     * 未缓存的房型合并为一次 selectByTypesAndDateRange 加载
+     */
+    public Map<Long, long[]> nightlyCents(List<SiteType> types, String checkIn, String checkOut) {
+        long from = LocalDate.parse(checkIn).toEpochDay();
+        long to = LocalDate.parse(checkOut).toEpochDay();
+        Map<Long, long[]> result = new HashMap<>();
+        if (to <= from) {
+            types.forEach(type -> result.put(type.getTypeId(), new long[0]));
+            return result;
+        }
+
+        List<SiteType> missing = new ArrayList<>();
+        for (SiteType type : types) {
+            Window cached = windows.get(type.getTypeId());
+            if (cached != null && cached.covers(from, to) && cached.baseCents == toCents(type.getBasePrice())) {
+                result.put(type.getTypeId(), cached.slice(from, to));
+            } else {
+                missing.add(type);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long today = LocalDate.now().toEpochDay();
+        boolean cacheable = from >= today && to <= today + horizonDays;
+        long loadFrom = cacheable ? today : from;
+        long loadTo = cacheable ? today + horizonDays : to;
+        long gen = generation.get();
+        Map<Long, Window> loaded = loadAll(missing, loadFrom, loadTo);
+        boolean unchanged = generation.get() == gen;
+        for (SiteType type : missing) {
+            Window window = loaded.get(type.getTypeId());
+            if (cacheable && unchanged) {
+                windows.put(type.getTypeId(), window);
+            }
+            result.put(type.getTypeId(), window.slice(from, to));
+        }
+        return result;
+    }
+
+    /**
+     * 房型日价或基础价变更后丢弃该房型的日历，在当前事务提交后生效
+     */
+    public void invalidate(Long typeId) {
+        TransactionUtil.afterCommit(() -> {
+            generation.incrementAndGet();
+            if (typeId != null) {
+                windows.remove(typeId);
+            }
+        });
+    }
+
+    private Window window(SiteType type, long from, long to) {
+        long baseCents = toCents(type.getBasePrice());
+        Window cached = windows.get(type.getTypeId());
+        if (cached != null && cached.covers(from, to) && cached.baseCents == baseCents) {
+            return cached;
+        }
+
+        long today = LocalDate.now().toEpochDay();
+        if (from < today || to > today + horizonDays) {
+            // 超出窗口的查询只加载所需区间，不入缓存
+            return load(type.getTypeId(), baseCents, from, to);
+        }
+
+        long gen = generation.get();
+        Window loaded = load(type.getTypeId(), baseCents, today, today + horizonDays);
+        if (generation.get() == gen) {
+            windows.put(type.getTypeId(), loaded);
+        }
+        return loaded;
+    }
+
+    private Window load(Long typeId, long baseCents, long from, long to) {
+        long[] cents = new long[(int) (to - from)];
+        Arrays.fill(cents, baseCents);
+        List<DailyPrice> dailyPrices = dailyPriceMapper.selectByTypeAndDateRange(typeId,
+                LocalDate.ofEpochDay(from).toString(), LocalDate.ofEpochDay(to - 1).toString());
+        for (DailyPrice dp : dailyPrices) {
+            if (dp.getPrice() != null) {
+                long day = LocalDate.parse(dp.getSpecificDate()).toEpochDay();
+                cents[(int) (day - from)] = toCents(dp.getPrice());
+            }
+        }
+        return new Window(from, baseCents, cents);
+    }
+
+    private Map<Long, Window> loadAll(List<SiteType> types, long from, long to) {
+        Map<Long, long[]> centsByType = new HashMap<>();
+        Map<Long, Long> baseByType = new HashMap<>();
+        List<Long> typeIds = new ArrayList<>();
+        for (SiteType type : types) {
+            long baseCents = toCents(type.getBasePrice());
+            long[] cents = new long[(int) (to - from)];
+            Arrays.fill(cents, baseCents);
+            centsByType.put(type.getTypeId(), cents);
+            baseByType.put(type.getTypeId(), baseCents);
+            typeIds.add(type.getTypeId());
+        }
+        List<DailyPrice> dailyPrices = dailyPriceMapper.selectByTypesAndDateRange(typeIds,
+                LocalDate.ofEpochDay(from).toString(), LocalDate.ofEpochDay(to - 1).toString());
+        for (DailyPrice dp : dailyPrices) {
+            long[] cents = centsByType.get(dp.getTypeId());
+            if (cents != null && dp.getPrice() != null) {
+                long day = LocalDate.parse(dp.getSpecificDate()).toEpochDay();
+                cents[(int) (day - from)] = toCents(dp.getPrice());
+            }
+        }
+        Map<Long, Window> windowsByType = new HashMap<>();
+        for (Long typeId : typeIds) {
+            windowsByType.put(typeId, new Window(from, baseByType.get(typeId), centsByType.get(typeId)));
+        }
+        return windowsByType;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * 一段连续夜晚的价格与前缀和
+     */
+    private static final class Window {
+
+        private final long start;
+        private final long baseCents;
+        private final long[] cents;
+        private final long[] prefix;
+
+        Window(long start, long baseCents, long[] cents) {
+            this.start = start;
+            this.baseCents = baseCents;
+            this.cents = cents;
+            this.prefix = new long[cents.length + 1];
+            for (int i = 0; i < cents.length; i++) {
+                prefix[i + 1] = prefix[i] + cents[i];
+            }
+        }
+
+        boolean covers(long from, long to) {
+            return from >= start && to <= start + cents.length;
+        }
+
+        long cents(long day) {
+            return cents[(int) (day - start)];
+        }
+
+        long sumCents(long from, long to) {
+            return prefix[(int) (to - start)] - prefix[(int) (from - start)];
+        }
+
+        long[] slice(long from, long to) {
+            return Arrays.copyOfRange(cents, (int) (from - start), (int) (to - start));
+        }
+    }
+}
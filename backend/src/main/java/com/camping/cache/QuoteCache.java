@@ -0,0 +1,358 @@
+package com.camping.cache;
+
+import com.camping.dto.BookingCheckDTO;
+import com.camping.dto.EquipSelectDTO;
+import com.camping.entity.Booking;
+import com.camping.util.TransactionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 预订检查（checkBooking）结果缓存
+ * 键为 (typeId, checkIn, checkOut, 按装备ID排序的装备选择)，按权重（1 + 晚数 + 装备种数，近似结果大小）
+ * 控制总容量，超出 max-weight 时淘汰最久未访问的条目。
+ * 不设 TTL：下单、取消、支付按房型与日期区间（及所选装备）失效，改价按房型与具体日期失效，
+ * 房型、营位、装备变更按房型或装备失效，均在事务提交后执行。
+ * 条目按房型和装备建立索引，失效只检查该房型、该装备下的条目，不扫描整个缓存。
+ * 每个房型、每个装备各有一个失效序号，计算期间键所涉及的房型或装备发生过失效时结果不写入，
+ * 其他房型的预订不影响本房型的写入。
+ * 权重超过 max-weight 的 1/MAX_ENTRY_FRACTION 的条目不缓存，避免单个长区间查询挤掉整个缓存。
+ */
+@Component
+public class QuoteCache {
+
+    private static final int MAX_ENTRY_FRACTION = 8;
+
+    @Value("${camping.quote-cache.max-weight:50000}")
+    private long maxWeight;
+
+    /** entries 与两个索引由 entries 的监视器保护 */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Long, Set<Key>> keysByType = new HashMap<>();
+    private final Map<Long, Set<Key>> keysByEquip = new HashMap<>();
+    private long weight;
+
+    /** 只在失效时创建，未出现过的房型或装备序号为 0 */
+    private final Map<Long, AtomicLong> typeSequences = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> equipSequences = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong stalePuts = new AtomicLong();
+    private final AtomicLong oversized = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * 由检查参数生成缓存键，日期无法解析或区间为空时返回 null（不缓存）
+     */
+    public static Key keyOf(BookingCheckDTO dto) {
+        try {
+            long from = LocalDate.parse(dto.getCheckIn()).toEpochDay();
+            long to = LocalDate.parse(dto.getCheckOut()).toEpochDay();
+            if (to <= from) {
+                return null;
+            }
+            // 重复选择同一装备时逐行校验库存，因此不合并，只按 (equipId, count) 排序
+            List<long[]> selections = new ArrayList<>();
+            if (dto.getEquipments() != null) {
+                for (EquipSelectDTO equip : dto.getEquipments()) {
+                    if (equip.getEquipId() == null || equip.getCount() == null) {
+                        return null;
+                    }
+                    selections.add(new long[] { equip.getEquipId(), equip.getCount() });
+                }
+            }
+            selections.sort(Comparator.<long[]>comparingLong(pair -> pair[0]).thenComparingLong(pair -> pair[1]));
+            StringBuilder equipKey = new StringBuilder();
+            Set<Long> equipIds = new HashSet<>();
+            for (long[] pair : selections) {
+                equipKey.append(pair[0]).append(':').append(pair[1]).append(',');
+                equipIds.add(pair[0]);
+            }
+            return new Key(dto.getTypeId(), from, to, equipKey.toString(), equipIds);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 键所涉及房型与装备的失效序号之和（各序号只增不减），计算前读取并在 put 时传回
+     */
+    public long sequence(Key key) {
+        long seq = sequenceOf(typeSequences, key.typeId);
+        for (Long equipId : key.equipIds) {
+            seq += sequenceOf(equipSequences, equipId);
+        }
+        return seq;
+    }
+
+    public Map<String, Object> get(Key key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.result;
+        }
+    }
+
+    /**
+     * 写入结果；计算开始后发生过失效或条目过大时放弃写入
+     */
+    public void put(Key key, Map<String, Object> result, long seenSequence) {
+        if (key.weight() > maxWeight / MAX_ENTRY_FRACTION) {
+            oversized.incrementAndGet();
+            return;
+        }
+        synchronized (entries) {
+            if (sequence(key) != seenSequence) {
+                stalePuts.incrementAndGet();
+                return;
+            }
+            Entry previous = entries.put(key, new Entry(result, key.weight()));
+            if (previous != null) {
+                weight -= previous.weight;
+            } else {
+                keysByType.computeIfAbsent(key.typeId, id -> new HashSet<>()).add(key);
+                for (Long equipId : key.equipIds) {
+                    keysByEquip.computeIfAbsent(equipId, id -> new HashSet<>()).add(key);
+                }
+            }
+            weight += key.weight();
+            puts.incrementAndGet();
+
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeight && eldest.hasNext()) {
+                Map.Entry<Key, Entry> e = eldest.next();
+                weight -= e.getValue().weight;
+                eldest.remove();
+                unindex(e.getKey());
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 预订占用变化：失效该房型与 [checkIn, checkOut) 重叠的条目，以及选了 equipIds 中装备且日期重叠的条目
+     */
+    public void invalidateStay(Long typeId, String checkIn, String checkOut, Collection<Long> equipIds) {
+        List<Stay> stays = Collections.singletonList(new Stay(typeId, checkIn, checkOut, equipIds));
+        TransactionUtil.afterCommit(() -> invalidateStays(stays));
+    }
+
+    /**
+     * 一批预订的占用变化（如超时清理），提交后在一次加锁内失效；equipIdsByBooking 中没有的订单视为未选装备
+     */
+    public void invalidateStays(List<Booking> bookings, Map<Long, List<Long>> equipIdsByBooking) {
+        List<Stay> stays = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            stays.add(new Stay(booking.getTypeId(), booking.getCheckIn(), booking.getCheckOut(),
+                    equipIdsByBooking.getOrDefault(booking.getBookingId(), Collections.emptyList())));
+        }
+        TransactionUtil.afterCommit(() -> invalidateStays(stays));
+    }
+
+    /**
+     * 日价变更：失效该房型入住区间包含任一 dates 的条目
+     */
+    public void invalidatePrices(Long typeId, Collection<String> dates) {
+        TreeSet<Long> days = new TreeSet<>();
+        for (String date : dates) {
+            days.add(LocalDate.parse(date).toEpochDay());
+        }
+        TransactionUtil.afterCommit(() -> {
+            synchronized (entries) {
+                bump(typeSequences, typeId);
+                removeMatching(keysByType.get(typeId), key -> {
+                    Long day = days.ceiling(key.from);
+                    return day != null && day < key.to;
+                });
+            }
+        });
+    }
+
+    /**
+     * 房型基础价、营位数量或状态变更：失效该房型的全部条目
+     */
+    public void invalidateType(Long typeId) {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (entries) {
+                bump(typeSequences, typeId);
+                removeMatching(keysByType.get(typeId), key -> true);
+            }
+        });
+    }
+
+    /**
+     * 装备单价、库存或状态变更：失效选了该装备的全部条目
+     */
+    public void invalidateEquipment(Long equipId) {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (entries) {
+                bump(equipSequences, equipId);
+                removeMatching(keysByEquip.get(equipId), key -> true);
+            }
+        });
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("weight", weight);
+        }
+        stats.put("maxWeight", maxWeight);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRatio", lookups == 0 ? 0d : (double) hitCount / lookups);
+        stats.put("puts", puts.get());
+        stats.put("stalePuts", stalePuts.get());
+        stats.put("oversized", oversized.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private void invalidateStays(List<Stay> stays) {
+        synchronized (entries) {
+            for (Stay stay : stays) {
+                bump(typeSequences, stay.typeId);
+                removeMatching(keysByType.get(stay.typeId), key -> key.overlaps(stay.from, stay.to));
+                for (Long equipId : stay.equipIds) {
+                    bump(equipSequences, equipId);
+                    removeMatching(keysByEquip.get(equipId), key -> key.overlaps(stay.from, stay.to));
+                }
+            }
+        }
+    }
+
+    /**
+     * 从 candidates（某个索引集合）中删除满足条件的条目，调用方持有 entries 的监视器
+     */
+    private void removeMatching(Set<Key> candidates, Predicate<Key> affected) {
+        if (candidates == null) {
+            return;
+        }
+        for (Key key : new ArrayList<>(candidates)) {
+            if (affected.test(key)) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    weight -= entry.weight;
+                    invalidations.incrementAndGet();
+                }
+                unindex(key);
+            }
+        }
+    }
+
+    private void unindex(Key key) {
+        removeFromIndex(keysByType, key.typeId, key);
+        for (Long equipId : key.equipIds) {
+            removeFromIndex(keysByEquip, equipId, key);
+        }
+    }
+
+    private static void removeFromIndex(Map<Long, Set<Key>> index, Long id, Key key) {
+        Set<Key> keys = index.get(id);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(id);
+        }
+    }
+
+    private static void bump(Map<Long, AtomicLong> sequences, Long id) {
+        sequences.computeIfAbsent(id, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static long sequenceOf(Map<Long, AtomicLong> sequences, Long id) {
+        AtomicLong seq = sequences.get(id);
+        return seq != null ? seq.get() : 0;
+    }
+
+    /**
+     * 一个预订占用的房型、日期区间与所选装备
+     */
+    private static final class Stay {
+
+        final Long typeId;
+        final long from;
+        final long to;
+        final Collection<Long> equipIds;
+
+        Stay(Long typeId, String checkIn, String checkOut, Collection<Long> equipIds) {
+            this.typeId = typeId;
+            this.from = LocalDate.parse(checkIn).toEpochDay();
+            this.to = LocalDate.parse(checkOut).toEpochDay();
+            this.equipIds = new HashSet<>(equipIds);
+        }
+    }
+
+    /**
+     * 缓存键，日期以 epochDay 存储
+     */
+    public static final class Key {
+
+        private final Long typeId;
+        private final long from;
+        private final long to;
+        private final String equipKey;
+        private final Set<Long> equipIds;
+
+        private Key(Long typeId, long from, long to, String equipKey, Set<Long> equipIds) {
+            this.typeId = typeId;
+            this.from = from;
+            this.to = to;
+            this.equipKey = equipKey;
+            this.equipIds = equipIds;
+        }
+
+        boolean overlaps(long checkIn, long checkOut) {
+            return from < checkOut && checkIn < to;
+        }
+
+        long weight() {
+            return 1 + (to - from) + equipIds.size();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return from == other.from && to == other.to && typeId.equals(other.typeId)
+                    && equipKey.equals(other.equipKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(typeId, from, to, equipKey);
+        }
+    }
+
+    private static final class Entry {
+
+        final Map<String, Object> result;
+        final long weight;
+
+        Entry(Map<String, Object> result, long weight) {
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.camping.cache;
+
+import com.camping.entity.Equipment;
+import com.camping.entity.Site;
+import com.camping.entity.SiteType;
+import com.camping.mapper.EquipmentMapper;
+import com.camping.mapper.SiteMapper;
+import com.camping.mapper.SiteTypeMapper;
+import com.camping.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 房型、营位、装备目录缓存
+ * 持有一份不可变的带版本号快照，读路径不访问数据库；
+ * 后台增删改后调用 refresh，事务提交后重新加载并整体替换快照。
+ * 与对应的 Mapper 查询口径一致：只包含 status = 1 的房型、营位和装备。
+ * 快照中的实体为共享对象，调用方只读不改。
+ */
+@Component
+public class ReferenceCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceCatalog.class);
+
+    @Autowired
+    private SiteTypeMapper siteTypeMapper;
+
+    @Autowired
+    private SiteMapper siteMapper;
+
+    @Autowired
+    private EquipmentMapper equipmentMapper;
+
+    private volatile Snapshot snapshot;
+
+    private long nextVersion = 1;
+
+    /**
+     * 当前快照，首次访问时加载
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    /**
+     * 目录数据变更后重新加载，在当前事务提交后生效
+     */
+    public void refresh() {
+        TransactionUtil.afterCommit(this::reload);
+    }
+
+    public List<SiteType> siteTypes() {
+        return current().siteTypes;
+    }
+
+    public SiteType siteType(Long typeId) {
+        return current().siteTypesById.get(typeId);
+    }
+
+    public List<Site> sites(Long typeId) {
+        return current().sitesByType.getOrDefault(typeId, Collections.emptyList());
+    }
+
+    public List<Equipment> equipments() {
+        return current().equipments;
+    }
+
+    public Equipment equipment(Long equipId) {
+        return current().equipmentsById.get(equipId);
+    }
+
+    public List<Equipment> equipmentsByCategory(String category) {
+        return current().equipmentsByCategory.getOrDefault(category, Collections.emptyList());
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot loaded = new Snapshot(nextVersion++, siteTypeMapper.selectAll(), siteMapper.selectAll(),
+                equipmentMapper.selectAll());
+        snapshot = loaded;
+        logger.info("Reference catalog v{} loaded: {} types, {} equipments",
+                loaded.version, loaded.siteTypes.size(), loaded.equipments.size());
+        return loaded;
+    }
+
+    /**
+     * 一份完整的目录数据，构造后不再修改
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final List<SiteType> siteTypes;
+        private final Map<Long, SiteType> siteTypesById;
+        private final Map<Long, List<Site>> sitesByType;
+        private final List<Equipment> equipments;
+        private final Map<Long, Equipment> equipmentsById;
+        private final Map<String, List<Equipment>> equipmentsByCategory;
+
+        Snapshot(long version, List<SiteType> types, List<Site> sites, List<Equipment> equipments) {
+            this.version = version;
+            this.siteTypes = Collections.unmodifiableList(new ArrayList<>(types));
+
+            Map<Long, SiteType> typesById = new HashMap<>();
+            for (SiteType type : types) {
+                typesById.put(type.getTypeId(), type);
+            }
+            this.siteTypesById = Collections.unmodifiableMap(typesById);
+
+            // sites 已按 type_id、site_no 排序
+            Map<Long, List<Site>> byType = new HashMap<>();
+            for (Site site : sites) {
+                byType.computeIfAbsent(site.getTypeId(), id -> new ArrayList<>()).add(site);
+            }
+            byType.replaceAll((id, list) -> Collections.unmodifiableList(list));
+            this.sitesByType = Collections.unmodifiableMap(byType);
+
+            // equipments 已按 category、equip_id 排序
+            this.equipments = Collections.unmodifiableList(new ArrayList<>(equipments));
+            Map<Long, Equipment> equipById = new HashMap<>();
+            Map<String, List<Equipment>> byCategory = new HashMap<>();
+            for (Equipment equipment : equipments) {
+                equipById.put(equipment.getEquipId(), equipment);
+                if (equipment.getCategory() != null) {
+                    byCategory.computeIfAbsent(equipment.getCategory(), c -> new ArrayList<>()).add(equipment);
+                }
+            }
+            byCategory.replaceAll((c, list) -> Collections.unmodifiableList(list));
+            this.equipmentsById = Collections.unmodifiableMap(equipById);
+            this.equipmentsByCategory = Collections.unmodifiableMap(byCategory);
+        }
+
+        public long version() {
+            return version;
+        }
+    }
+}
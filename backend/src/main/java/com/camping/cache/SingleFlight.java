@@ -0,0 +1,121 @@
+package com.camping.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 相同请求合并（single-flight）
+ * 同一 key 的并发调用只有第一个真正执行，其余等待并共享同一结果；
+ * 成功结果在 ttl-ms 内继续复用（0 表示只合并进行中的调用）。失败结果不缓存。
+ * 共享的结果对象会被多个请求同时序列化，调用方不得修改。
+ */
+@Component
+public class SingleFlight {
+
+    @Value("${camping.single-flight.ttl-ms:500}")
+    private long ttlMs;
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * 以 key 合并执行 loader，key 应由规范化后的参数拼成
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Callable<T> loader) throws Exception {
+        calls.incrementAndGet();
+        while (true) {
+            Flight existing = flights.get(key);
+            if (existing != null) {
+                if (!existing.future.isDone()) {
+                    coalesced.incrementAndGet();
+                    return (T) await(existing);
+                }
+                if (existing.isFresh(System.currentTimeMillis(), ttlMs)) {
+                    reused.incrementAndGet();
+                    return (T) await(existing);
+                }
+                flights.remove(key, existing);
+            }
+
+            Flight mine = new Flight();
+            if (flights.putIfAbsent(key, mine) != null) {
+                continue;
+            }
+            executed.incrementAndGet();
+            try {
+                T value = loader.call();
+                mine.completedAt = System.currentTimeMillis();
+                mine.future.complete(value);
+                if (ttlMs <= 0) {
+                    flights.remove(key, mine);
+                }
+                return value;
+            } catch (Exception | Error e) {
+                flights.remove(key, mine);
+                mine.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 定期清理已过期的结果
+     */
+    @Scheduled(fixedDelayString = "${camping.single-flight.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        flights.values().removeIf(flight -> flight.future.isDone() && !flight.isFresh(now, ttlMs));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ttlMs", ttlMs);
+        stats.put("keys", flights.size());
+        stats.put("calls", calls.get());
+        stats.put("executed", executed.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("reused", reused.get());
+        return stats;
+    }
+
+    private static Object await(Flight flight) throws Exception {
+        try {
+            return flight.future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Flight {
+
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        /** 在 future 完成前写入，读到已完成的 future 即可见 */
+        volatile long completedAt;
+
+        boolean isFresh(long now, long ttlMs) {
+            return !future.isCompletedExceptionally() && now - completedAt < ttlMs;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package com.camping.cache;
+
+import com.camping.entity.Booking;
+import com.camping.entity.Site;
+import com.camping.entity.SiteType;
+import com.camping.mapper.BookingMapper;
+import com.camping.mapper.SiteMapper;
+import com.camping.mapper.SiteTypeMapper;
+import com.camping.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * 营位占用位图索引
+ * 每个房型下的每个营位持有一个 BitSet，第 i 位表示 horizonStart + i 这一晚已被占用。
+ * 启动时从 bookings 加载，之后随下单、支付、取消增量维护；
+ * 超出滚动窗口的日期回退到 SiteMapper 查询。
+ */
+@Component
+public class SiteOccupancyIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SiteOccupancyIndex.class);
+
+    @Autowired
+    private SiteTypeMapper siteTypeMapper;
+
+    @Autowired
+    private SiteMapper siteMapper;
+
+    @Autowired
+    private BookingMapper bookingMapper;
+
+    @Value("${camping.occupancy.horizon-days:400}")
+    private int horizonDays;
+
+    /** 重建替换位图时持有写锁，其余读写操作持有读锁 */
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    /** 同一时刻只允许一次重建 */
+    private final Object rebuildMonitor = new Object();
+
+    private final Map<Long, TypeOccupancy> types = new ConcurrentHashMap<>();
+
+    private volatile long horizonStart = LocalDate.now().toEpochDay();
+
+    /** 重建加载期间提交的占用变更与房型失效，替换位图后按顺序重放；不在重建时为 null */
+    private volatile List<Runnable> pendingChanges;
+
+    /** 房型失效次数，懒加载期间发生失效时不缓存加载结果 */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * 启动完成后全量加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 每日凌晨滚动窗口并全量重建
+     * 在锁外加载新位图，查询期间查询与增量维护照常使用旧位图；
+     * 只在替换时短暂持有写锁，并重放加载期间提交的变更
+     */
+    @Scheduled(cron = "${camping.occupancy.rebuild-cron:0 5 0 * * *}")
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            List<Runnable> changes = Collections.synchronizedList(new ArrayList<>());
+            rebuildLock.writeLock().lock();
+            try {
+                pendingChanges = changes;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+
+            Map<Long, TypeOccupancy> loaded = new HashMap<>();
+            long start = LocalDate.now().toEpochDay();
+            String startDate = LocalDate.ofEpochDay(start).toString();
+            String endDate = LocalDate.ofEpochDay(start + horizonDays).toString();
+            int bookingCount;
+            try {
+                Map<Long, List<Site>> sitesByType = new HashMap<>();
+                for (Site site : siteMapper.selectAll()) {
+                    sitesByType.computeIfAbsent(site.getTypeId(), id -> new ArrayList<>()).add(site);
+                }
+                for (SiteType type : siteTypeMapper.selectAll()) {
+                    loaded.put(type.getTypeId(), new TypeOccupancy(
+                            sitesByType.getOrDefault(type.getTypeId(), Collections.emptyList()), horizonDays));
+                }
+                List<Booking> bookings = bookingMapper.selectActiveInRange(null, startDate, endDate);
+                for (Booking booking : bookings) {
+                    TypeOccupancy occupancy = loaded.get(booking.getTypeId());
+                    if (occupancy != null) {
+                        occupancy.mark(booking.getSiteId(), nightOffset(start, booking.getCheckIn()),
+                                nightOffset(start, booking.getCheckOut()), true);
+                    }
+                }
+                bookingCount = bookings.size();
+            } catch (RuntimeException e) {
+                pendingChanges = null;
+                throw e;
+            }
+
+            rebuildLock.writeLock().lock();
+            try {
+                types.clear();
+                types.putAll(loaded);
+                horizonStart = start;
+                pendingChanges = null;
+                synchronized (changes) {
+                    changes.forEach(Runnable::run);
+                }
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+            logger.info("Site occupancy index rebuilt: {} types, {} bookings, {} changes replayed, horizon {} ~ {}",
+                    loaded.size(), bookingCount, changes.size(), startDate, endDate);
+        }
+    }
+
+    /**
+     * 房型下的可用营位总数（status = 1）
+     */
+    public int totalSites(Long typeId) {
+        rebuildLock.readLock().lock();
+        try {
+            return typeOccupancy(typeId).totalSites();
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询 [checkIn, checkOut) 内每晚都空闲的营位，按 site_no 排序
+     */
+    public List<Site> findAvailable(Long typeId, String checkIn, String checkOut) {
+        rebuildLock.readLock().lock();
+        try {
+            long start = horizonStart;
+            int from = nightOffset(start, checkIn);
+            int to = nightOffset(start, checkOut);
+            if (from < 0 || to > horizonDays || from >= to) {
+                return siteMapper.selectAvailable(typeId, checkIn, checkOut);
+            }
+            return typeOccupancy(typeId).freeSites(from, to);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 指定日期当晚的空闲营位数
+     */
+    public int countAvailable(Long typeId, String date) {
+        return countAvailableByNight(typeId, date, date)[0];
+    }
+
+    /**
+     * 按晚统计 [startDate, endDate]（含两端）内每晚的空闲营位数
+     */
+    public int[] countAvailableByNight(Long typeId, String startDate, String endDate) {
+        rebuildLock.readLock().lock();
+        try {
+            long start = horizonStart;
+            int from = nightOffset(start, startDate);
+            int to = nightOffset(start, endDate) + 1;
+            if (to <= from) {
+                return new int[0];
+            }
+            if (from >= 0 && to <= horizonDays) {
+                return typeOccupancy(typeId).countFree(from, to);
+            }
+
+            // 超出窗口时由数据库一次按晚统计
+            int[] counts = new int[to - from];
+            long first = start + from;
+            for (Map<String, Object> row : siteMapper.countAvailableByNight(typeId, startDate, endDate)) {
+                int night = (int) (LocalDate.parse((String) row.get("night")).toEpochDay() - first);
+                counts[night] = ((Number) row.get("available")).intValue();
+            }
+            return counts;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 多个房型按晚统计 [startDate, endDate]（含两端）内每晚的空闲营位数；
+     * 窗口内先逐个取出各房型位图，再并行统计，超出窗口时所有房型合并为一次查询
+     */
+    public Map<Long, int[]> countAvailableByNight(List<Long> typeIds, String startDate, String endDate) {
+        Map<Long, int[]> result = new ConcurrentHashMap<>();
+        if (typeIds.isEmpty()) {
+            return result;
+        }
+        rebuildLock.readLock().lock();
+        try {
+            long start = horizonStart;
+            int from = nightOffset(start, startDate);
+            int to = nightOffset(start, endDate) + 1;
+            if (to <= from) {
+                typeIds.forEach(typeId -> result.put(typeId, new int[0]));
+                return result;
+            }
+            if (from >= 0 && to <= horizonDays) {
+                // 未加载的房型可能需要查询数据库，先在当前线程逐个取出，公共 ForkJoinPool 只做内存中的位图统计
+                List<TypeOccupancy> occupancies = new ArrayList<>(typeIds.size());
+                for (Long typeId : typeIds) {
+                    occupancies.add(typeOccupancy(typeId));
+                }
+                IntStream.range(0, typeIds.size()).parallel()
+                        .forEach(i -> result.put(typeIds.get(i), occupancies.get(i).countFree(from, to)));
+                return result;
+            }
+
+            long first = start + from;
+            typeIds.forEach(typeId -> result.put(typeId, new int[to - from]));
+            for (Map<String, Object> row : siteMapper.countAvailableByNightForTypes(typeIds, startDate, endDate)) {
+                int[] counts = result.get(((Number) row.get("type_id")).longValue());
+                if (counts != null) {
+                    int night = (int) (LocalDate.parse((String) row.get("night")).toEpochDay() - first);
+                    counts[night] = ((Number) row.get("available")).intValue();
+                }
+            }
+            return result;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 灵活日期：[startDate, endDate]（含两端）内以每一天入住、连住 length 晚都空闲的营位数；
+     * 第 i 个元素对应 startDate + i 入住，区间不足 length 晚时返回空数组。
+     * 超出窗口时用一次营位查询和一次预订查询构建临时位图
+     */
+    public int[] countFreeForStays(Long typeId, String startDate, String endDate, int length) {
+        rebuildLock.readLock().lock();
+        try {
+            long start = horizonStart;
+            int from = nightOffset(start, startDate);
+            int to = nightOffset(start, endDate) + 1;
+            if (length <= 0 || to - from < length) {
+                return new int[0];
+            }
+            if (from >= 0 && to <= horizonDays) {
+                return typeOccupancy(typeId).countFreeRuns(from, to, length);
+            }
+            return loadRange(typeId, start + from, to - from).countFreeRuns(0, to - from, length);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 批量判断多个入住区间是否各有一个营位整段空闲；stays 中每项为相对 spanStart 的 {起始晚, 结束晚}（左闭右开），
+     * 均须落在 [spanStart, spanEnd) 内。超出窗口时用一次营位查询和一次预订查询构建整个区间的临时位图
+     */
+    public boolean[] hasFreeSite(Long typeId, String spanStart, String spanEnd, List<int[]> stays) {
+        rebuildLock.readLock().lock();
+        try {
+            long start = horizonStart;
+            int from = nightOffset(start, spanStart);
+            int to = nightOffset(start, spanEnd);
+            TypeOccupancy occupancy;
+            int base;
+            if (from >= 0 && to <= horizonDays) {
+                occupancy = typeOccupancy(typeId);
+                base = from;
+            } else {
+                occupancy = loadRange(typeId, start + from, to - from);
+                base = 0;
+            }
+
+            boolean[] free = new boolean[stays.size()];
+            for (int i = 0; i < free.length; i++) {
+                int[] stay = stays.get(i);
+                free[i] = occupancy.anyFree(base + stay[0], base + stay[1]);
+            }
+            return free;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 标记预订占用的夜晚，在当前事务提交后生效
+     */
+    public void occupy(Booking booking) {
+        TransactionUtil.afterCommit(() -> apply(booking, true));
+    }
+
+    /**
+     * 释放预订占用的夜晚，在当前事务提交后生效
+     */
+    public void release(Booking booking) {
+        TransactionUtil.afterCommit(() -> apply(booking, false));
+    }
+
+    /**
+     * 营位增删或状态变更后丢弃该房型，下次访问时重新加载
+     */
+    public void invalidateType(Long typeId) {
+        if (typeId != null) {
+            TransactionUtil.afterCommit(() -> invalidate(typeId));
+        }
+    }
+
+    private void apply(Booking booking, boolean occupied) {
+        rebuildLock.readLock().lock();
+        try {
+            long start = horizonStart;
+            typeOccupancy(booking.getTypeId()).mark(booking.getSiteId(),
+                    nightOffset(start, booking.getCheckIn()), nightOffset(start, booking.getCheckOut()), occupied);
+            List<Runnable> changes = pendingChanges;
+            if (changes != null) {
+                changes.add(() -> replay(booking, occupied));
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void invalidate(Long typeId) {
+        rebuildLock.readLock().lock();
+        try {
+            invalidations.incrementAndGet();
+            types.remove(typeId);
+            List<Runnable> changes = pendingChanges;
+            if (changes != null) {
+                changes.add(() -> types.remove(typeId));
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 重放时只标记新位图中已有的房型；其余房型下次访问时从数据库加载，已包含这次变更
+     */
+    private void replay(Booking booking, boolean occupied) {
+        TypeOccupancy occupancy = types.get(booking.getTypeId());
+        if (occupancy != null) {
+            long start = horizonStart;
+            occupancy.mark(booking.getSiteId(), nightOffset(start, booking.getCheckIn()),
+                    nightOffset(start, booking.getCheckOut()), occupied);
+        }
+    }
+
+    /**
+     * 取房型位图，未加载时在 Map 外查询数据库后 putIfAbsent，不占用 ConcurrentHashMap 的桶锁；
+     * 调用方持有读锁，加载期间窗口不会滚动
+     */
+    private TypeOccupancy typeOccupancy(Long typeId) {
+        TypeOccupancy occupancy = types.get(typeId);
+        if (occupancy != null) {
+            return occupancy;
+        }
+        long seenInvalidations = invalidations.get();
+        long start = horizonStart;
+        TypeOccupancy loaded = new TypeOccupancy(siteMapper.selectByTypeId(typeId), horizonDays);
+        List<Booking> bookings = bookingMapper.selectActiveInRange(typeId,
+                LocalDate.ofEpochDay(start).toString(), LocalDate.ofEpochDay(start + horizonDays).toString());
+        for (Booking booking : bookings) {
+            loaded.mark(booking.getSiteId(), nightOffset(start, booking.getCheckIn()),
+                    nightOffset(start, booking.getCheckOut()), true);
+        }
+        // 加载期间有房型失效时，读到的营位列表可能已过期，本次使用但不缓存
+        if (invalidations.get() != seenInvalidations) {
+            return loaded;
+        }
+        occupancy = types.putIfAbsent(typeId, loaded);
+        return occupancy != null ? occupancy : loaded;
+    }
+
+    /**
+     * 为窗口外的 [firstDay, firstDay + length) 构建临时位图，不入缓存
+     */
+    private TypeOccupancy loadRange(Long typeId, long firstDay, int length) {
+        TypeOccupancy range = new TypeOccupancy(siteMapper.selectByTypeId(typeId), length);
+        List<Booking> bookings = bookingMapper.selectActiveInRange(typeId, LocalDate.ofEpochDay(firstDay).toString(),
+                LocalDate.ofEpochDay(firstDay + length).toString());
+        for (Booking booking : bookings) {
+            range.mark(booking.getSiteId(), nightOffset(firstDay, booking.getCheckIn()),
+                    nightOffset(firstDay, booking.getCheckOut()), true);
+        }
+        return range;
+    }
+
+    private static int nightOffset(long start, String date) {
+        return (int) (LocalDate.parse(date).toEpochDay() - start);
+    }
+
+    /**
+     * 单个房型的占用位图
+     */
+    private static final class TypeOccupancy {
+
+        private final List<Site> sites;
+        private final Map<Long, Integer> slotBySiteId;
+        private final BitSet[] nights;
+        private final int horizonDays;
+
+        TypeOccupancy(List<Site> sites, int horizonDays) {
+            this.sites = sites != null ? sites : Collections.emptyList();
+            this.slotBySiteId = new HashMap<>();
+            this.nights = new BitSet[this.sites.size()];
+            this.horizonDays = horizonDays;
+            for (int i = 0; i < this.sites.size(); i++) {
+                slotBySiteId.put(this.sites.get(i).getSiteId(), i);
+                nights[i] = new BitSet(horizonDays);
+            }
+        }
+
+        int totalSites() {
+            return sites.size();
+        }
+
+        synchronized void mark(Long siteId, int from, int to, boolean occupied) {
+            Integer slot = slotBySiteId.get(siteId);
+            int lo = Math.max(from, 0);
+            int hi = Math.min(to, horizonDays);
+            if (slot == null || lo >= hi) {
+                return;
+            }
+            nights[slot].set(lo, hi, occupied);
+        }
+
+        synchronized List<Site> freeSites(int from, int to) {
+            List<Site> free = new ArrayList<>();
+            for (int i = 0; i < nights.length; i++) {
+                int next = nights[i].nextSetBit(from);
+                if (next < 0 || next >= to) {
+                    free.add(sites.get(i));
+                }
+            }
+            return free;
+        }
+
+        synchronized boolean anyFree(int from, int to) {
+            for (BitSet bits : nights) {
+                int next = bits.nextSetBit(from);
+                if (next < 0 || next >= to) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 逐个营位扫描连续空闲晚数，空闲段长度达到 length 时该段起点对应的入住日计数加一
+         */
+        synchronized int[] countFreeRuns(int from, int to, int length) {
+            int[] counts = new int[to - from - length + 1];
+            for (BitSet bits : nights) {
+                int run = 0;
+                for (int n = from; n < to; n++) {
+                    run = bits.get(n) ? 0 : run + 1;
+                    if (run >= length) {
+                        counts[n - length + 1 - from]++;
+                    }
+                }
+            }
+            return counts;
+        }
+
+        synchronized int[] countFree(int from, int to) {
+            int[] counts = new int[to - from];
+            Arrays.fill(counts, nights.length);
+            for (BitSet bits : nights) {
+                for (int n = bits.nextSetBit(from); n >= 0 && n < to; n = bits.nextSetBit(n + 1)) {
+                    counts[n - from]--;
+                }
+            }
+            return counts;
+        }
+    }
+}
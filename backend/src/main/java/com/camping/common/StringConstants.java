@@ -15,6 +15,7 @@ public class StringConstants {
     static public final String USER_ADMIN = "admin";
     static public final String USER_USER = "user";
     static public final String USER_TOKEN_EXPIRED = "Token 已过期";
+    static public final String USER_NOT_LOGIN = "未登录或登录已过期";
 
     /* OperationLog */
     // operation
@@ -1,5 +1,6 @@
 package com.camping.config;
 
+import com.camping.cache.ReferenceCatalog;
 import com.camping.entity.Equipment;
 import com.camping.entity.Site;
 import com.camping.entity.SiteType;
@@ -20,17 +21,21 @@ public class DataSeedRunner implements ApplicationRunner {
     private final SiteTypeMapper siteTypeMapper;
     private final SiteMapper siteMapper;
     private final EquipmentMapper equipmentMapper;
+    private final ReferenceCatalog catalog;
 
-    public DataSeedRunner(SiteTypeMapper siteTypeMapper, SiteMapper siteMapper, EquipmentMapper equipmentMapper) {
+    public DataSeedRunner(SiteTypeMapper siteTypeMapper, SiteMapper siteMapper, EquipmentMapper equipmentMapper,
+            ReferenceCatalog catalog) {
         this.siteTypeMapper = siteTypeMapper;
         this.siteMapper = siteMapper;
         this.equipmentMapper = equipmentMapper;
+        this.catalog = catalog;
     }
 
     @Override
     public void run(ApplicationArguments args) {
         seedSiteTypesAndSitesIfEmpty();
         seedEquipmentsIfEmpty();
+        catalog.refresh();
     }
 
     private void seedSiteTypesAndSitesIfEmpty() {
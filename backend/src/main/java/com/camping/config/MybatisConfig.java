@@ -6,6 +6,7 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import javax.sql.DataSource;
 
 @Configuration
@@ -29,4 +30,13 @@ public class MybatisConfig {
 
         return factoryBean.getObject();
     }
+
+    /**
+     * 事务管理器：所有数据访问都走 MyBatis，使用 JDBC 事务管理器代替 JPA 自动配置的 JpaTransactionManager，
+     * 后者不支持保存点，乐观分配营位时 createSavepoint 会失败
+     */
+    @Bean
+    public DataSourceTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
 }
\ No newline at end of file
@@ -1,13 +1,35 @@
 package com.camping.controller;
 
+import com.camping.audit.AuditLogWriter;
+import com.camping.auth.AuthPrincipal;
+import com.camping.auth.JwtAuthFilter;
+import com.camping.auth.LoginThrottle;
+import com.camping.auth.PasswordHasher;
+import com.camping.cache.PriceCalendar;
+import com.camping.cache.QuoteCache;
+import com.camping.cache.ReferenceCatalog;
+import com.camping.cache.SingleFlight;
+import com.camping.cache.SiteOccupancyIndex;
 import com.camping.common.Result;
+import com.camping.common.StringConstants;
+import com.camping.dto.OperationLogQueryDTO;
 import com.camping.dto.PriceSetDTO;
 import com.camping.entity.*;
 import com.camping.mapper.*;
+import com.camping.service.AdminService;
+import com.camping.service.BookingService;
+import com.camping.task.BookingExpirySweeper;
+import com.camping.util.NightlyRevenue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -36,32 +58,59 @@ public class AdminController {
     private BookingMapper bookingMapper;
 
     @Autowired
-    private OperationLogMapper operationLogMapper;
+    private JwtAuthFilter jwtAuthFilter;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+
+    @Autowired
+    private DailyRevenueRollupMapper dailyRevenueRollupMapper;
+
+    @Autowired
+    private SiteOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private PriceCalendar priceCalendar;
+
+    @Autowired
+    private ReferenceCatalog catalog;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private BookingExpirySweeper bookingExpirySweeper;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private BookingService bookingService;
 
     /**
      * Set daily price for multiple dates
      */
     @PostMapping("/price/set")
-    public Result<Void> setDailyPrice(@RequestBody PriceSetDTO dto) {
+    public Result<Object> setDailyPrice(@RequestBody PriceSetDTO dto) {
         try {
             List<String> dates = dto.getDates();
             if (dates == null || dates.isEmpty()) {
                 return Result.error("No dates provided");
             }
-            for (String dateStr : dates) {
-                DailyPrice existing = dailyPriceMapper.selectByTypeAndDate(dto.getTypeId(), dateStr);
-                if (existing != null) {
-                    existing.setPrice(dto.getPrice());
-                    dailyPriceMapper.update(existing);
-                } else {
-                    DailyPrice newPrice = new DailyPrice();
-                    newPrice.setTypeId(dto.getTypeId());
-                    newPrice.setSpecificDate(dateStr);
-                    newPrice.setPrice(dto.getPrice());
-                    dailyPriceMapper.insert(newPrice);
-                }
-            }
-            return Result.success(null);
+            int rowsAffected = adminService.setDailyPrice(dto);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("rowsAffected", rowsAffected);
+            return Result.success(result);
         } catch (Exception e) {
             return Result.error("Failed to set price: " + e.getMessage());
         }
@@ -71,7 +120,7 @@ public class AdminController {
      * Batch set daily prices for date range
      */
     @PostMapping("/price/batch")
-    public Result<Void> setDailyPricesBatch(@RequestBody Map<String, Object> data) {
+    public Result<Object> setDailyPricesBatch(@RequestBody Map<String, Object> data) {
         try {
             Long typeId = ((Number) data.get("typeId")).longValue();
             String startDate = (String) data.get("startDate");
@@ -81,21 +130,15 @@ public class AdminController {
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
 
+            List<String> dates = new ArrayList<>();
             for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-                String dateStr = date.format(DateTimeFormatter.ISO_DATE);
-                DailyPrice existing = dailyPriceMapper.selectByTypeAndDate(typeId, dateStr);
-                if (existing != null) {
-                    existing.setPrice(price);
-                    dailyPriceMapper.update(existing);
-                } else {
-                    DailyPrice newPrice = new DailyPrice();
-                    newPrice.setTypeId(typeId);
-                    newPrice.setSpecificDate(dateStr);
-                    newPrice.setPrice(price);
-                    dailyPriceMapper.insert(newPrice);
-                }
+                dates.add(date.format(DateTimeFormatter.ISO_DATE));
             }
-            return Result.success(null);
+            int rowsAffected = dates.isEmpty() ? 0 : adminService.setDailyPrice(new PriceSetDTO(typeId, dates, price));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("rowsAffected", rowsAffected);
+            return Result.success(result);
         } catch (Exception e) {
             return Result.error("Failed to batch set prices: " + e.getMessage());
         }
@@ -107,36 +150,17 @@ public class AdminController {
     @GetMapping("/report/daily")
     public Result<Object> getDailyReport(@RequestParam String startDate, @RequestParam String endDate) {
         try {
-            List<Booking> allBookings = bookingMapper.selectAll();
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
+            NightlyRevenue nightly = NightlyRevenue.of(dailyRevenueRollupMapper.selectNightly(startDate, endDate),
+                    start, end);
 
             List<Object> report = new ArrayList<>();
-            for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-                String dateStr = date.format(DateTimeFormatter.ISO_DATE);
-                int bookingCount = 0;
-                BigDecimal revenue = BigDecimal.ZERO;
-
-                for (Booking booking : allBookings) {
-                    if (booking.getStatus() == 2) {
-                        LocalDate checkIn = LocalDate.parse(booking.getCheckIn());
-                        LocalDate checkOut = LocalDate.parse(booking.getCheckOut());
-                        if (!date.isBefore(checkIn) && date.isBefore(checkOut)) {
-                            bookingCount++;
-                            int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
-                            if (nights > 0) {
-                                BigDecimal dailyAmount = booking.getTotalPrice().divide(BigDecimal.valueOf(nights), 2,
-                                        BigDecimal.ROUND_HALF_UP);
-                                revenue = revenue.add(dailyAmount);
-                            }
-                        }
-                    }
-                }
-
+            for (int night = 0; night < nightly.days(); night++) {
                 Map<String, Object> dayReport = new LinkedHashMap<>();
-                dayReport.put("date", dateStr);
-                dayReport.put("bookingCount", bookingCount);
-                dayReport.put("revenue", revenue);
+                dayReport.put("date", nightly.date(night).format(DateTimeFormatter.ISO_DATE));
+                dayReport.put("bookingCount", nightly.bookingCount(night));
+                dayReport.put("revenue", nightly.revenue(night));
                 report.add(dayReport);
             }
             return Result.success(report);
@@ -152,24 +176,18 @@ public class AdminController {
     public Result<Object> getTypeReport(@RequestParam String startDate, @RequestParam String endDate) {
         try {
             List<SiteType> types = siteTypeMapper.selectAll();
-            List<Booking> allBookings = bookingMapper.selectAll();
-            LocalDate start = LocalDate.parse(startDate);
-            LocalDate end = LocalDate.parse(endDate);
+            Map<Long, Map<String, Object>> arrivalsByType = new HashMap<>();
+            for (Map<String, Object> row : dailyRevenueRollupMapper.selectArrivalsByType(startDate, endDate)) {
+                arrivalsByType.put(((Number) row.get("type_id")).longValue(), row);
+            }
 
             List<Object> report = new ArrayList<>();
             for (SiteType type : types) {
-                int bookingCount = 0;
-                BigDecimal revenue = BigDecimal.ZERO;
-
-                for (Booking booking : allBookings) {
-                    if (booking.getStatus() == 2 && type.getTypeId().equals(booking.getTypeId())) {
-                        LocalDate checkIn = LocalDate.parse(booking.getCheckIn());
-                        if (!checkIn.isBefore(start) && !checkIn.isAfter(end)) {
-                            bookingCount++;
-                            revenue = revenue.add(booking.getTotalPrice());
-                        }
-                    }
-                }
+                Map<String, Object> arrivals = arrivalsByType.get(type.getTypeId());
+                int bookingCount = arrivals != null ? ((Number) arrivals.get("arrival_count")).intValue() : 0;
+                BigDecimal revenue = bookingCount > 0
+                        ? BigDecimal.valueOf(((Number) arrivals.get("arrival_revenue_cents")).longValue(), 2)
+                        : BigDecimal.ZERO;
 
                 Map<String, Object> typeReport = new LinkedHashMap<>();
                 typeReport.put("typeId", type.getTypeId());
@@ -226,28 +244,19 @@ public class AdminController {
     @GetMapping("/stats/type")
     public Result<Object> getTypeStats() {
         try {
-            List<SiteType> types = siteTypeMapper.selectAll();
             List<Object> stats = new ArrayList<>();
 
-            for (SiteType type : types) {
-                List<Site> sites = siteMapper.selectByTypeId(type.getTypeId());
-                int availableCount = 0;
-                int occupiedCount = 0;
-
-                for (Site site : sites) {
-                    if (site.getStatus() == 1)
-                        availableCount++;
-                    else
-                        occupiedCount++;
-                }
+            for (Map<String, Object> row : siteTypeMapper.selectSiteStats()) {
+                int totalSites = ((Number) row.get("total_sites")).intValue();
+                int availableCount = ((Number) row.get("available_sites")).intValue();
 
                 Map<String, Object> typeStat = new LinkedHashMap<>();
-                typeStat.put("typeId", type.getTypeId());
-                typeStat.put("typeName", type.getTypeName());
-                typeStat.put("totalSites", sites.size());
+                typeStat.put("typeId", ((Number) row.get("type_id")).longValue());
+                typeStat.put("typeName", row.get("type_name"));
+                typeStat.put("totalSites", totalSites);
                 typeStat.put("availableSites", availableCount);
-                typeStat.put("occupiedSites", occupiedCount);
-                typeStat.put("basePrice", type.getBasePrice());
+                typeStat.put("occupiedSites", totalSites - availableCount);
+                typeStat.put("basePrice", row.get("base_price"));
                 stats.add(typeStat);
             }
             return Result.success(stats);
@@ -260,76 +269,87 @@ public class AdminController {
      * Get operation logs with pagination
      */
     @GetMapping("/logs/operation")
-    public Result<Object> getOperationLogs(@RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "20") Integer pageSize,
-            @RequestParam(required = false) String operation) {
+    public Result<Object> getOperationLogs(OperationLogQueryDTO query) {
         try {
-            List<OperationLog> logs;
-            if (operation != null && !operation.isEmpty()) {
-                logs = operationLogMapper.selectByOperation(operation);
-            } else {
-                Map<String, Object> params = new HashMap<>();
-                logs = operationLogMapper.selectAll(params);
-            }
-
-            int total = logs.size();
-            int startIndex = (page - 1) * pageSize;
-            int endIndex = Math.min(startIndex + pageSize, total);
-
-            List<Object> items = new ArrayList<>();
-            if (startIndex < total) {
-                for (int i = startIndex; i < endIndex; i++) {
-                    OperationLog log = logs.get(i);
-                    Map<String, Object> item = new LinkedHashMap<>();
-                    item.put("logId", log.getLogId());
-                    item.put("operation", log.getOperation());
-                    item.put("operatorId", log.getOperatorId());
-                    item.put("operatorName", log.getOperatorName());
-                    item.put("description", log.getDescription());
-                    item.put("details", log.getDetails());
-                    item.put("logTime", log.getLogTime());
-                    items.add(item);
-                }
-            }
-
-            Map<String, Object> result = new LinkedHashMap<>();
-            result.put("items", items);
-            result.put("total", total);
-            result.put("page", page);
-            result.put("pageSize", pageSize);
-            return Result.success(result);
+            return Result.success(adminService.getOperationLogs(query));
         } catch (Exception e) {
             return Result.error("Failed to get operation logs: " + e.getMessage());
         }
     }
 
+    /**
+     * Get audit log writer queue counters
+     */
+    @GetMapping("/logs/writer/stats")
+    public Result<Object> getAuditWriterStats() {
+        return Result.success(auditLogWriter.stats());
+    }
+
+    /**
+     * Get verified token cache counters
+     */
+    @GetMapping("/auth/stats")
+    public Result<Object> getAuthCacheStats() {
+        return Result.success(jwtAuthFilter.stats());
+    }
+
+    /**
+     * Get request coalescing counters for hot catalog and calendar reads
+     */
+    @GetMapping("/coalescing/stats")
+    public Result<Object> getCoalescingStats() {
+        return Result.success(singleFlight.stats());
+    }
+
+    /**
+     * Get pending booking expiry sweeper counters and the inventory reclaimed by the last run
+     */
+    @GetMapping("/booking/expiry/stats")
+    public Result<Object> getBookingExpiryStats() {
+        return Result.success(bookingExpirySweeper.stats());
+    }
+
+    /**
+     * Get site allocation counters, including optimistic overlap retries
+     */
+    @GetMapping("/booking/allocation/stats")
+    public Result<Object> getBookingAllocationStats() {
+        return Result.success(bookingService.allocationStats());
+    }
+
+    /**
+     * Get booking quote cache hit/miss, eviction and invalidation counters
+     */
+    @GetMapping("/quote-cache/stats")
+    public Result<Object> getQuoteCacheStats() {
+        return Result.success(quoteCache.stats());
+    }
+
+    /**
+     * Get password hashing pool and login throttle counters
+     */
+    @GetMapping("/auth/login/stats")
+    public Result<Object> getLoginStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hasher", passwordHasher.stats());
+        stats.put("throttle", loginThrottle.stats());
+        return Result.success(stats);
+    }
+
     /**
      * Get all sites with optional type filter
      */
     @GetMapping("/sites")
     public Result<List<Object>> getAllSites(@RequestParam(required = false) Long typeId) {
         try {
-            List<Site> sites;
-            if (typeId != null) {
-                sites = siteMapper.selectByTypeId(typeId);
-            } else {
-                List<SiteType> types = siteTypeMapper.selectAll();
-                sites = new ArrayList<>();
-                for (SiteType type : types) {
-                    sites.addAll(siteMapper.selectByTypeId(type.getTypeId()));
-                }
-            }
-
             List<Object> result = new ArrayList<>();
-            for (Site site : sites) {
+            for (Map<String, Object> row : siteMapper.selectWithTypeName(typeId)) {
                 Map<String, Object> item = new LinkedHashMap<>();
-                item.put("siteId", site.getSiteId());
-                item.put("typeId", site.getTypeId());
-                item.put("siteNo", site.getSiteNo());
-                item.put("status", site.getStatus());
-
-                SiteType type = siteTypeMapper.selectById(site.getTypeId());
-                item.put("typeName", type != null ? type.getTypeName() : "Unknown");
+                item.put("siteId", ((Number) row.get("site_id")).longValue());
+                item.put("typeId", ((Number) row.get("type_id")).longValue());
+                item.put("siteNo", row.get("site_no"));
+                item.put("status", row.get("status"));
+                item.put("typeName", row.get("type_name"));
                 result.add(item);
             }
             return Result.success(result);
@@ -385,6 +405,9 @@ public class AdminController {
 
             site.setStatus(newStatus);
             siteMapper.update(site);
+            occupancyIndex.invalidateType(site.getTypeId());
+            catalog.refresh();
+            quoteCache.invalidateType(site.getTypeId());
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -394,7 +417,7 @@ public class AdminController {
                     "Update site status to: " + (newStatus == 1 ? "Normal" : "Maintenance"),
                     "siteId=" + siteId + ", newStatus=" + newStatus,
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
             return Result.success(null);
         } catch (Exception e) {
@@ -420,10 +443,9 @@ public class AdminController {
             int occupiedCount = 0;
 
             for (SiteType type : types) {
-                List<Site> allSites = siteMapper.selectByTypeId(type.getTypeId());
-                List<Site> availableSites = siteMapper.selectAvailable(type.getTypeId(), date, date);
-                totalCount += allSites.size();
-                occupiedCount += allSites.size() - (availableSites != null ? availableSites.size() : 0);
+                int totalSites = occupancyIndex.totalSites(type.getTypeId());
+                totalCount += totalSites;
+                occupiedCount += totalSites - occupancyIndex.countAvailable(type.getTypeId(), date);
             }
 
             double occupancyRate = totalCount > 0 ? (double) occupiedCount / totalCount : 0;
@@ -446,35 +468,17 @@ public class AdminController {
     @GetMapping("/revenue/trend")
     public Result<Object> getRevenueTrend(@RequestParam String startDate, @RequestParam String endDate) {
         try {
-            List<Booking> allBookings = bookingMapper.selectAll();
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
+            NightlyRevenue nightly = NightlyRevenue.of(dailyRevenueRollupMapper.selectNightly(startDate, endDate),
+                    start, end);
 
             List<Object> trend = new ArrayList<>();
-            for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-                BigDecimal dailyRevenue = BigDecimal.ZERO;
-                int bookingCount = 0;
-
-                for (Booking booking : allBookings) {
-                    if (booking.getStatus() == 2) {
-                        LocalDate checkIn = LocalDate.parse(booking.getCheckIn());
-                        LocalDate checkOut = LocalDate.parse(booking.getCheckOut());
-                        if (!date.isBefore(checkIn) && date.isBefore(checkOut)) {
-                            bookingCount++;
-                            int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
-                            if (nights > 0) {
-                                BigDecimal dailyAmount = booking.getTotalPrice().divide(BigDecimal.valueOf(nights), 2,
-                                        BigDecimal.ROUND_HALF_UP);
-                                dailyRevenue = dailyRevenue.add(dailyAmount);
-                            }
-                        }
-                    }
-                }
-
+            for (int night = 0; night < nightly.days(); night++) {
                 Map<String, Object> dayData = new LinkedHashMap<>();
-                dayData.put("date", date.format(DateTimeFormatter.ISO_DATE));
-                dayData.put("revenue", dailyRevenue);
-                dayData.put("bookingCount", bookingCount);
+                dayData.put("date", nightly.date(night).format(DateTimeFormatter.ISO_DATE));
+                dayData.put("revenue", nightly.revenue(night));
+                dayData.put("bookingCount", nightly.bookingCount(night));
                 trend.add(dayData);
             }
             return Result.success(trend);
@@ -489,70 +493,86 @@ public class AdminController {
     @PutMapping("/booking/{bookingId}/price")
     public Result<Void> adjustBookingPrice(@PathVariable Long bookingId, @RequestBody Map<String, Object> data) {
         try {
-            Booking booking = bookingMapper.selectById(bookingId);
-            if (booking == null) {
-                return Result.error("Booking not found");
-            }
-
             BigDecimal newPrice = new BigDecimal(data.get("price").toString());
-            BigDecimal oldPrice = booking.getTotalPrice();
-            booking.setTotalPrice(newPrice);
-            bookingMapper.update(booking);
-
-            // Log operation
-            OperationLog log = new OperationLog(
-                    "ADJUST_PRICE",
-                    null,
-                    "ADMIN",
-                    "Adjust booking price from " + oldPrice + " to " + newPrice,
-                    "bookingId=" + bookingId,
-                    LocalDateTime.now());
-            operationLogMapper.insert(log);
-
+            adminService.adjustBookingPrice(bookingId, newPrice);
             return Result.success(null);
         } catch (Exception e) {
             return Result.error("Failed to adjust price: " + e.getMessage());
         }
     }
 
+    /**
+     * Rebuild the daily revenue rollup from bookings and report how many rows had drifted
+     */
+    @PostMapping("/revenue/rollup/rebuild")
+    public Result<Object> rebuildRevenueRollup() {
+        try {
+            return Result.success(adminService.rebuildRevenueRollup());
+        } catch (Exception e) {
+            return Result.error("Failed to rebuild revenue rollup: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Export bookings as CSV or NDJSON, streamed straight to the response.
+     * Contains guest names and phone numbers, so only admins may call it
+     */
+    @GetMapping("/export/bookings")
+    public void exportBookings(@RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) Long typeId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestAttribute(name = AuthPrincipal.ATTRIBUTE, required = false) AuthPrincipal principal,
+            HttpServletResponse response) throws IOException {
+        if (principal == null || !StringConstants.USER_ADMIN.equals(principal.getRole())) {
+            response.setStatus(principal == null ? HttpServletResponse.SC_UNAUTHORIZED : HttpServletResponse.SC_FORBIDDEN);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setContentType("text/plain");
+            response.getWriter().write(principal == null ? StringConstants.USER_NOT_LOGIN : "Admin role required");
+            return;
+        }
+
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(ndjson ? "application/x-ndjson" : "text/csv");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=bookings." + (ndjson ? "ndjson" : "csv"));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        try {
+            adminService.exportBookings(startDate, endDate, status, typeId, format, writer);
+        } catch (Exception e) {
+            if (response.isCommitted()) {
+                // Headers already sent; the client sees a truncated file
+                throw new IOException("Booking export aborted", e);
+            }
+            response.reset();
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setContentType("text/plain");
+            response.getWriter().write("Failed to export bookings: " + e.getMessage());
+        }
+    }
+
     /**
      * Get user behavior log
      */
     @GetMapping("/logs/user-behavior")
     public Result<Object> getUserBehaviorLog(@RequestParam(required = false) Long userId,
-            @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "20") Integer pageSize) {
+            OperationLogQueryDTO query) {
         try {
-            Map<String, Object> params = new HashMap<>();
-            List<OperationLog> logs = operationLogMapper.selectAll(params);
-
             if (userId != null) {
-                logs.removeIf(log -> !userId.equals(log.getOperatorId()));
+                query.setOperatorId(userId);
             }
+            Map<String, Object> result = adminService.getOperationLogs(query);
 
-            int total = logs.size();
-            int startIndex = (page - 1) * pageSize;
-            int endIndex = Math.min(startIndex + pageSize, total);
-
-            List<Object> items = new ArrayList<>();
-            if (startIndex < total) {
-                for (int i = startIndex; i < endIndex; i++) {
-                    OperationLog log = logs.get(i);
-                    Map<String, Object> item = new LinkedHashMap<>();
-                    item.put("logId", log.getLogId());
-                    item.put("operation", log.getOperation());
-                    item.put("operatorId", log.getOperatorId());
-                    item.put("description", log.getDescription());
-                    item.put("logTime", log.getLogTime());
-                    items.add(item);
-                }
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> items = (List<Map<String, Object>>) result.get("items");
+            for (Map<String, Object> item : items) {
+                item.remove("operatorName");
+                item.remove("details");
             }
-
-            Map<String, Object> result = new LinkedHashMap<>();
-            result.put("items", items);
-            result.put("total", total);
-            result.put("page", page);
-            result.put("pageSize", pageSize);
             return Result.success(result);
         } catch (Exception e) {
             return Result.error("Failed to get user behavior log: " + e.getMessage());
@@ -570,6 +590,7 @@ public class AdminController {
             siteType.setCreateTime(LocalDateTime.now());
             siteType.setUpdateTime(LocalDateTime.now());
             siteTypeMapper.insert(siteType);
+            catalog.refresh();
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -579,7 +600,7 @@ public class AdminController {
                     "Create site type: " + siteType.getTypeName(),
                     "typeId=" + siteType.getTypeId(),
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
             Map<String, Object> result = new LinkedHashMap<>();
             result.put("typeId", siteType.getTypeId());
@@ -604,6 +625,9 @@ public class AdminController {
             siteType.setTypeId(typeId);
             siteType.setUpdateTime(LocalDateTime.now());
             siteTypeMapper.update(siteType);
+            priceCalendar.invalidate(typeId);
+            catalog.refresh();
+            quoteCache.invalidateType(typeId);
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -613,7 +637,7 @@ public class AdminController {
                     "Update site type: " + siteType.getTypeName(),
                     "typeId=" + typeId,
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
             return Result.success(null);
         } catch (Exception e) {
@@ -638,6 +662,9 @@ public class AdminController {
             }
 
             siteTypeMapper.delete(typeId);
+            priceCalendar.invalidate(typeId);
+            catalog.refresh();
+            quoteCache.invalidateType(typeId);
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -647,7 +674,7 @@ public class AdminController {
                     "Delete site type: " + existing.getTypeName(),
                     "typeId=" + typeId,
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
             return Result.success(null);
         } catch (Exception e) {
@@ -666,6 +693,7 @@ public class AdminController {
             equipment.setCreateTime(LocalDateTime.now());
             equipment.setUpdateTime(LocalDateTime.now());
             equipmentMapper.insert(equipment);
+            catalog.refresh();
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -675,7 +703,7 @@ public class AdminController {
                     "Create equipment: " + equipment.getEquipName(),
                     "equipId=" + equipment.getEquipId(),
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
             Map<String, Object> result = new LinkedHashMap<>();
             result.put("equipId", equipment.getEquipId());
@@ -700,6 +728,8 @@ public class AdminController {
             equipment.setEquipId(equipId);
             equipment.setUpdateTime(LocalDateTime.now());
             equipmentMapper.update(equipment);
+            catalog.refresh();
+            quoteCache.invalidateEquipment(equipId);
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -709,7 +739,7 @@ public class AdminController {
                     "Update equipment: " + equipment.getEquipName(),
                     "equipId=" + equipId,
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
             return Result.success(null);
         } catch (Exception e) {
@@ -729,6 +759,8 @@ public class AdminController {
             }
 
             equipmentMapper.delete(equipId);
+            catalog.refresh();
+            quoteCache.invalidateEquipment(equipId);
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -738,7 +770,7 @@ public class AdminController {
                     "Delete equipment: " + existing.getEquipName(),
                     "equipId=" + equipId,
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
             return Result.success(null);
         } catch (Exception e) {
@@ -1,6 +1,8 @@
 package com.camping.controller;
 
+import com.camping.auth.AuthPrincipal;
 import com.camping.common.Result;
+import com.camping.common.StringConstants;
 import com.camping.dto.*;
 import com.camping.service.BookingService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,13 +33,31 @@ public class BookingController {
         }
     }
 
+    /**
+     * 批量预订检查 - 比较多个候选方案（改期、续住、换房型）
+     */
+    @PostMapping("/check/batch")
+    public Result<List<Map<String, Object>>> checkBookingBatch(@RequestBody List<BookingCheckDTO> candidates) {
+        try {
+            List<Map<String, Object>> result = bookingService.checkBookingBatch(candidates);
+            return Result.success(result);
+        } catch (Exception e) {
+            return Result.error("批量预订检查失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 创建订单 - 核心预订接口
      * 包含事务控制: 校验库存 -> 计算价格 -> 分配营位 -> 保存订单
      */
     @PostMapping("/create")
-    public Result<Map<String, Object>> createBooking(@RequestBody BookingCreateDTO dto) {
+    public Result<Map<String, Object>> createBooking(@RequestBody BookingCreateDTO dto,
+            @RequestAttribute(name = AuthPrincipal.ATTRIBUTE, required = false) AuthPrincipal principal) {
         try {
+            if (principal == null) {
+                throw new Exception(StringConstants.USER_NOT_LOGIN);
+            }
+            dto.setUserId(principal.getUserId());
             Map<String, Object> result = bookingService.createOrder(dto);
             return Result.success(result);
         } catch (Exception e) {
@@ -62,10 +82,13 @@ public class BookingController {
      * 获取我的订单列表
      */
     @GetMapping("/my")
-    public Result<List<Object>> myBookings(@RequestParam Long userId,
-            @RequestParam(required = false) Integer status) {
+    public Result<List<Object>> myBookings(@RequestParam(required = false) Integer status,
+            @RequestAttribute(name = AuthPrincipal.ATTRIBUTE, required = false) AuthPrincipal principal) {
         try {
-            var bookings = bookingService.getMyBookings(userId, status);
+            if (principal == null) {
+                throw new Exception(StringConstants.USER_NOT_LOGIN);
+            }
+            var bookings = bookingService.getMyBookings(principal.getUserId(), status);
             return Result.success((List<Object>) (List<?>) bookings);
         } catch (Exception e) {
             return Result.error("获取订单列表失败: " + e.getMessage());
@@ -1,15 +1,15 @@
 package com.camping.controller;
 
+import com.camping.cache.ReferenceCatalog;
+import com.camping.cache.SiteOccupancyIndex;
 import com.camping.common.Result;
 import com.camping.service.ResourceService;
 import com.camping.mapper.DailyPriceMapper;
 import com.camping.mapper.SiteMapper;
 import com.camping.mapper.BookingEquipMapper;
-import com.camping.mapper.EquipmentMapper;
-import com.camping.mapper.SiteTypeMapper;
+import com.camping.mapper.EquipmentDailyUsageMapper;
 import com.camping.entity.DailyPrice;
 import com.camping.entity.Equipment;
-import com.camping.entity.Site;
 import com.camping.entity.SiteType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -38,10 +38,13 @@ public class ResourceController {
     private BookingEquipMapper bookingEquipMapper;
 
     @Autowired
-    private EquipmentMapper equipmentMapper;
+    private EquipmentDailyUsageMapper equipmentDailyUsageMapper;
 
     @Autowired
-    private SiteTypeMapper siteTypeMapper;
+    private SiteOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private ReferenceCatalog catalog;
 
     /**
      * 获取当日房型列表（含当日价格与可用量）
@@ -108,7 +111,7 @@ public class ResourceController {
             @SuppressWarnings("unchecked")
             List<String> dates = (List<String>) data.get("dates");
 
-            SiteType siteType = siteTypeMapper.selectById(typeId);
+            SiteType siteType = catalog.siteType(typeId);
             if (siteType == null) {
                 return Result.error("房型不存在");
             }
@@ -177,14 +180,14 @@ public class ResourceController {
             @SuppressWarnings("unchecked")
             List<Number> equipIds = (List<Number>) data.get("equipIds");
             String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
+            Map<Long, Integer> reservedMap = reservedByEquip(today);
 
             List<Object> result = new ArrayList<>();
             for (Number id : equipIds) {
                 Long equipId = id.longValue();
-                Equipment e = equipmentMapper.selectById(equipId);
+                Equipment e = catalog.equipment(equipId);
                 if (e != null) {
-                    Integer usedCount = bookingEquipMapper.sumQuantityByEquipAndDate(equipId, today, today);
-                    int used = usedCount != null ? usedCount : 0;
+                    int used = reservedMap.getOrDefault(equipId, 0);
                     int available = (e.getTotalStock() != null ? e.getTotalStock() : 0) - used;
 
                     Map<String, Object> item = new LinkedHashMap<>();
@@ -207,7 +210,7 @@ public class ResourceController {
     @GetMapping("/equip/categories")
     public Result<List<Object>> getEquipmentCategories() {
         try {
-            List<Equipment> equipments = equipmentMapper.selectAll();
+            List<Equipment> equipments = catalog.equipments();
             Set<String> categories = new LinkedHashSet<>();
             for (Equipment e : equipments) {
                 if (e.getCategory() != null && !e.getCategory().isEmpty()) {
@@ -227,13 +230,13 @@ public class ResourceController {
     @GetMapping("/equip/category/{category}")
     public Result<List<Object>> getEquipmentsByCategory(@PathVariable String category) {
         try {
-            List<Equipment> equipments = equipmentMapper.selectByCategory(category);
+            List<Equipment> equipments = catalog.equipmentsByCategory(category);
             String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
+            Map<Long, Integer> reservedMap = reservedByEquip(today);
 
             List<Object> result = new ArrayList<>();
             for (Equipment e : equipments) {
-                Integer usedCount = bookingEquipMapper.sumQuantityByEquipAndDate(e.getEquipId(), today, today);
-                int used = usedCount != null ? usedCount : 0;
+                int used = reservedMap.getOrDefault(e.getEquipId(), 0);
                 int available = (e.getTotalStock() != null ? e.getTotalStock() : 0) - used;
 
                 Map<String, Object> item = new LinkedHashMap<>();
@@ -270,24 +273,18 @@ public class ResourceController {
 
             if ("site".equals(kind)) {
                 // 查询房型在日期范围内的最小可用营位数
-                SiteType siteType = siteTypeMapper.selectById(typeId);
+                SiteType siteType = catalog.siteType(typeId);
                 if (siteType == null) {
                     data.put("remaining", 0);
                     data.put("total", 0);
                     return Result.success(data);
                 }
 
-                List<Site> allSites = siteMapper.selectByTypeId(typeId);
-                int totalSites = allSites.size();
+                int totalSites = occupancyIndex.totalSites(typeId);
 
-                // 遍历日期范围，取最小可用数
+                // 一次取出日期范围内每晚的可用数，取最小值
                 int minAvailable = totalSites;
-                LocalDate start = LocalDate.parse(startDate);
-                LocalDate end = LocalDate.parse(endDate);
-                for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-                    String dateStr = date.format(DateTimeFormatter.ISO_DATE);
-                    List<Site> availableSites = siteMapper.selectAvailable(typeId, dateStr, dateStr);
-                    int available = availableSites != null ? availableSites.size() : totalSites;
+                for (int available : occupancyIndex.countAvailableByNight(typeId, startDate, endDate)) {
                     minAvailable = Math.min(minAvailable, available);
                 }
 
@@ -295,7 +292,7 @@ public class ResourceController {
                 data.put("total", totalSites);
             } else if ("equip".equals(kind)) {
                 // 查询装备在日期范围内的最小可用库存
-                Equipment equipment = equipmentMapper.selectById(typeId);
+                Equipment equipment = catalog.equipment(typeId);
                 if (equipment == null) {
                     data.put("remaining", 0);
                     data.put("total", 0);
@@ -304,8 +301,8 @@ public class ResourceController {
 
                 int totalStock = equipment.getTotalStock() != null ? equipment.getTotalStock() : 0;
 
-                // 查询日期范围内最大已使用数
-                Integer maxUsed = bookingEquipMapper.sumQuantityByEquipAndDate(typeId, startDate, endDate);
+                // 查询日期范围内每晚最大已使用数
+                Integer maxUsed = equipmentDailyUsageMapper.selectMaxReserved(typeId, startDate, endDate);
                 int used = maxUsed != null ? maxUsed : 0;
                 int available = totalStock - used;
 
@@ -321,4 +318,67 @@ public class ResourceController {
             return Result.error("查询可用量失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 跨房型可用性搜索
+     * 返回所有可容纳 guests 人（且总价不超过 maxPrice）的房型在入住区间内的最少空闲营位数与总价
+     */
+    @GetMapping("/search/availability")
+    public Result<List<Object>> searchAvailability(@RequestParam String checkIn,
+            @RequestParam String checkOut,
+            @RequestParam(required = false) Integer guests,
+            @RequestParam(required = false) BigDecimal maxPrice) {
+        try {
+            List<Object> result = resourceService.searchAvailability(checkIn, checkOut, guests, maxPrice);
+            return Result.success(result);
+        } catch (Exception e) {
+            return Result.error("查询可用房型失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 灵活日期搜索
+     * 返回 [startDate, endDate] 内可连住 nights 晚的所有入住日及总价，按总价升序
+     */
+    @GetMapping("/search/flexible")
+    public Result<List<Object>> searchFlexible(@RequestParam Long typeId,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam Integer nights) {
+        try {
+            List<Object> result = resourceService.searchFlexible(typeId, startDate, endDate, nights);
+            return Result.success(result);
+        } catch (Exception e) {
+            return Result.error("灵活日期搜索失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 最低价搜索
+     * 返回 [startDate, endDate] 内连住 nights 晚总价最低的 k 个入住日（默认 5 个）
+     */
+    @GetMapping("/search/cheapest")
+    public Result<List<Object>> searchCheapest(@RequestParam Long typeId,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam Integer nights,
+            @RequestParam(required = false) Integer k) {
+        try {
+            List<Object> result = resourceService.searchCheapest(typeId, startDate, endDate, nights, k);
+            return Result.success(result);
+        } catch (Exception e) {
+            return Result.error("最低价搜索失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询各装备当晚的占用数
+     */
+    private Map<Long, Integer> reservedByEquip(String date) {
+        Map<Long, Integer> reservedMap = new HashMap<>();
+        for (Map<String, Object> row : equipmentDailyUsageMapper.selectMaxReservedByEquip(date, date)) {
+            reservedMap.put(((Number) row.get("equip_id")).longValue(), ((Number) row.get("reserved")).intValue());
+        }
+        return reservedMap;
+    }
 }
\ No newline at end of file
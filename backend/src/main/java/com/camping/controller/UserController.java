@@ -1,12 +1,18 @@
 package com.camping.controller;
 
+import com.camping.auth.AuthPrincipal;
+import com.camping.auth.TooManyRequestsException;
 import com.camping.common.Result;
 import com.camping.common.StringConstants;
 import com.camping.dto.*;
 import com.camping.service.UserService;
-import com.camping.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.Map;
 
 /**
@@ -23,10 +29,13 @@ public class UserController {
      * 用户注册
      */
     @PostMapping("/register")
-    public Result<Void> register(@RequestBody UserRegisterDTO dto) {
+    public Result<Void> register(@RequestBody UserRegisterDTO dto, HttpServletResponse response) {
         try {
             userService.register(dto);
             return Result.success(null);
+        } catch (TooManyRequestsException e) {
+            rejectTooManyRequests(response, e);
+            return Result.error("注册失败: " + e.getMessage());
         } catch (Exception e) {
             return Result.error("注册失败: " + e.getMessage());
         }
@@ -36,10 +45,15 @@ public class UserController {
      * 用户登录
      */
     @PostMapping("/login")
-    public Result<Map<String, Object>> login(@RequestBody UserLoginDTO dto) {
+    public Result<Map<String, Object>> login(@RequestBody UserLoginDTO dto,
+            HttpServletRequest request, HttpServletResponse response) {
         try {
-            Map<String, Object> result = userService.login(dto).toMap();
+            // 经可信代理转发时 getRemoteAddr 已由 server.forward-headers-strategy 还原为客户端地址
+            Map<String, Object> result = userService.login(dto, request.getRemoteAddr()).toMap();
             return Result.success(result);
+        } catch (TooManyRequestsException e) {
+            rejectTooManyRequests(response, e);
+            return Result.error("登录失败: " + e.getMessage());
         } catch (Exception e) {
             return Result.error("登录失败: " + e.getMessage());
         }
@@ -49,14 +63,17 @@ public class UserController {
      * 获取当前用户信息
      */
     @GetMapping("/info")
-    public Result<Map<String, Object>> getCurrentUser(@RequestParam String token) {
+    public Result<Map<String, Object>> getCurrentUser(
+            @RequestAttribute(name = AuthPrincipal.ATTRIBUTE, required = false) AuthPrincipal principal) {
         try {
-            if (JwtUtil.isTokenExpired(token)) {
-                throw new Exception(StringConstants.USER_TOKEN_EXPIRED);
+            if (principal == null) {
+                throw new Exception(StringConstants.USER_NOT_LOGIN);
             }
 
-            Long userId = JwtUtil.getUserIdFromToken(token);
-            var user = userService.getUserById(userId);
+            var user = userService.getUserById(principal.getUserId());
+            if (user == null) {
+                throw new Exception(StringConstants.USER_NOT_EXIST);
+            }
 
             Map<String, Object> info = new java.util.HashMap<>();
             info.put("userId", user.getUserId());
@@ -76,7 +93,7 @@ public class UserController {
      * 用户登出
      */
     @PostMapping("/logout")
-    public Result<Void> logout(@RequestParam String token) {
+    public Result<Void> logout() {
         // JWT tokens are stateless, logout is handled by removing token on client side
         // For enhanced security, a token blacklist could be implemented here
         return Result.success(null);
@@ -86,8 +103,13 @@ public class UserController {
      * 更新用户信息
      */
     @PutMapping("/info")
-    public Result<Void> updateUserInfo(@RequestBody UserInfoDTO userInfoDTO) {
+    public Result<Void> updateUserInfo(@RequestBody UserInfoDTO userInfoDTO,
+            @RequestAttribute(name = AuthPrincipal.ATTRIBUTE, required = false) AuthPrincipal principal) {
         try {
+            if (principal == null) {
+                throw new Exception(StringConstants.USER_NOT_LOGIN);
+            }
+            userInfoDTO.setUserId(principal.getUserId());
             userService.updateUserInfo(userInfoDTO);
 
             return Result.success(null);
@@ -100,21 +122,36 @@ public class UserController {
      * 修改密码
      */
     @PostMapping("/password")
-    public Result<Void> changePassword(@RequestBody Map<String, Object> data) {
+    public Result<Void> changePassword(@RequestBody Map<String, Object> data,
+            @RequestAttribute(name = AuthPrincipal.ATTRIBUTE, required = false) AuthPrincipal principal,
+            HttpServletResponse response) {
         /*
-         * data: token->String
-         * oldPassword->String
+         * data: oldPassword->String
          * newPassword->String
          */
         try {
-            Long userId = JwtUtil.getUserIdFromToken((String) data.get("token")); // 从 Token 获取
+            if (principal == null) {
+                throw new Exception(StringConstants.USER_NOT_LOGIN);
+            }
+            Long userId = principal.getUserId(); // 从请求的当前用户获取
             String oldPassword = (String) data.get("oldPassword");
             String newPassword = (String) data.get("newPassword");
 
             userService.changePassword(userId, oldPassword, newPassword);
             return Result.success(null);
+        } catch (TooManyRequestsException e) {
+            rejectTooManyRequests(response, e);
+            return Result.error("修改密码失败: " + e.getMessage());
         } catch (Exception e) {
             return Result.error("修改密码失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 限流或哈希线程池已满时返回 429 并附带 Retry-After
+     */
+    private static void rejectTooManyRequests(HttpServletResponse response, TooManyRequestsException e) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.camping.dto;
+
+/**
+ * 操作日志查询 DTO
+ * startTime、endTime 支持 yyyy-MM-dd 或 yyyy-MM-ddTHH:mm:ss；只给日期时 endTime 包含当天
+ */
+public class OperationLogQueryDTO {
+    private String operation;
+    private Long operatorId;
+    private String operatorName;
+    private String startTime;
+    private String endTime;
+    private String pageToken;
+    private Integer pageSize = 20;
+    private Boolean withTotal = false;
+
+    public OperationLogQueryDTO() {
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public Long getOperatorId() {
+        return operatorId;
+    }
+
+    public void setOperatorId(Long operatorId) {
+        this.operatorId = operatorId;
+    }
+
+    public String getOperatorName() {
+        return operatorName;
+    }
+
+    public void setOperatorName(String operatorName) {
+        this.operatorName = operatorName;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+
+    public String getPageToken() {
+        return pageToken;
+    }
+
+    public void setPageToken(String pageToken) {
+        this.pageToken = pageToken;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public Boolean getWithTotal() {
+        return withTotal;
+    }
+
+    public void setWithTotal(Boolean withTotal) {
+        this.withTotal = withTotal;
+    }
+}
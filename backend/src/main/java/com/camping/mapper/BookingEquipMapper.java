@@ -30,4 +30,9 @@ public interface BookingEquipMapper {
      * 删除预订装备
      */
     void deleteByBookingId(Long bookingId);
+
+    /**
+     * 批量删除多个预订的装备并返回被删除的行，bookingIds 不能为空
+     */
+    List<BookingEquip> deleteByBookingIds(@Param("bookingIds") List<Long> bookingIds);
 }
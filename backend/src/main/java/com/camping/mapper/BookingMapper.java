@@ -2,7 +2,11 @@ package com.camping.mapper;
 
 import com.camping.entity.Booking;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 预订 Mapper 接口
@@ -14,6 +18,11 @@ public interface BookingMapper {
      */
     Booking selectById(Long bookingId);
 
+    /**
+     * 根据ID查询并锁定预订（FOR UPDATE），锁持有到事务结束
+     */
+    Booking selectByIdForUpdate(Long bookingId);
+
     /**
      * 按用户查询预订
      */
@@ -32,6 +41,48 @@ public interface BookingMapper {
             @Param("checkIn") String checkIn,
             @Param("checkOut") String checkOut);
 
+    /**
+     * 统计指定营位在时间段内仍有效的冲突预订数
+     */
+    int countSiteConflict(@Param("siteId") Long siteId,
+            @Param("checkIn") String checkIn,
+            @Param("checkOut") String checkOut);
+
+    /**
+     * 查询日期范围内仍占用营位的预订（待支付、已支付），typeId 为空时查询全部房型
+     */
+    List<Booking> selectActiveInRange(@Param("typeId") Long typeId,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /**
+     * 按条件流式读取预订（按 booking_id 排序），条件为空时不过滤；
+     * 入住日期区间含两端。须在事务内消费，游标随事务结束关闭
+     */
+    Cursor<Booking> selectForExport(@Param("startDate") String startDate,
+            @Param("endDate") String endDate,
+            @Param("status") Integer status,
+            @Param("typeId") Long typeId);
+
+    /**
+     * 把 create_time 早于 cutoff 的待支付预订批量改为已取消，单条语句完成，最多 limit 条；
+     * 被其他事务锁住的预订跳过（SKIP LOCKED），返回被取消的预订
+     */
+    List<Booking> expirePending(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 待支付 -> 已支付，单条语句内同时把订单计入 daily_revenue_rollup；
+     * 状态不是待支付，或 holdCutoff 不为空且 create_time 早于它时不更新。返回支付后的预订，未更新时返回 null
+     */
+    Booking markPaid(@Param("bookingId") Long bookingId, @Param("holdCutoff") LocalDateTime holdCutoff);
+
+    /**
+     * 待支付或已支付 -> 已取消，单条语句内（CTE）同时删除装备关联、扣减装备台账，已支付的订单从 daily_revenue_rollup 扣除；
+     * 返回 booking_id、type_id、site_id、check_in、check_out、previous_status、equip_ids（逗号分隔，无装备时为 null）七列，
+     * 状态不允许取消时返回 null
+     */
+    Map<String, Object> cancelAndRelease(@Param("bookingId") Long bookingId);
+
     /**
      * 插入预订
      */
@@ -42,6 +93,11 @@ public interface BookingMapper {
      */
     void update(Booking booking);
 
+    /**
+     * 只更新订单总价与 update_time，不改动状态
+     */
+    void updateTotalPrice(@Param("bookingId") Long bookingId, @Param("totalPrice") BigDecimal totalPrice);
+
     /**
      * 查询所有预订
      */
@@ -2,6 +2,7 @@ package com.camping.mapper;
 
 import com.camping.entity.DailyPrice;
 import org.apache.ibatis.annotations.Param;
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -22,6 +23,13 @@ public interface DailyPriceMapper {
             @Param("startDate") String startDate,
             @Param("endDate") String endDate);
 
+    /**
+     * 一次查询多个房型在日期范围内（含两端）的价格，typeIds 不能为空
+     */
+    List<DailyPrice> selectByTypesAndDateRange(@Param("typeIds") List<Long> typeIds,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
     /**
      * 插入价格
      */
@@ -32,6 +40,14 @@ public interface DailyPriceMapper {
      */
     void update(DailyPrice dailyPrice);
 
+    /**
+     * 批量写入同一房型多个日期的价格，已存在的日期覆盖价格
+     * dates 中不能有重复日期，返回影响行数
+     */
+    int upsertBatch(@Param("typeId") Long typeId,
+            @Param("dates") List<String> dates,
+            @Param("price") BigDecimal price);
+
     /**
      * 删除价格
      */
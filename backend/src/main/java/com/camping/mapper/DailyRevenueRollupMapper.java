@@ -0,0 +1,50 @@
+package com.camping.mapper;
+
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日收入汇总 Mapper 接口
+ * 每行对应一个房型的一晚：paid_count、revenue_cents 为当晚在住的已支付预订数与均摊收入（分），
+ * arrival_count、arrival_revenue_cents 为当天入住的已支付预订数与订单总价（分）
+ */
+public interface DailyRevenueRollupMapper {
+
+    /**
+     * 把预订按晚计入汇总，sign 为 1 时累加、-1 时扣减；需在预订状态或价格变更的同一事务内调用
+     */
+    void applyBooking(@Param("bookingId") Long bookingId, @Param("sign") int sign);
+
+    /**
+     * 按晚汇总 [startDate, endDate]（含两端），返回 night、paid_count、revenue_cents 三列
+     */
+    List<Map<String, Object>> selectNightly(@Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /**
+     * 按房型汇总 [startDate, endDate]（含两端）内入住的预订，返回 type_id、arrival_count、arrival_revenue_cents 三列
+     */
+    List<Map<String, Object>> selectArrivalsByType(@Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /**
+     * 统计汇总表与从 bookings 重新计算的结果不一致的行数
+     */
+    int countDrift();
+
+    /**
+     * 锁定汇总表，阻止重建期间的增量写入
+     */
+    void lockForRebuild();
+
+    /**
+     * 清空汇总表
+     */
+    int deleteAll();
+
+    /**
+     * 从 bookings 重新计算并写入汇总表
+     */
+    int insertFromBookings();
+}
@@ -0,0 +1,46 @@
+package com.camping.mapper;
+
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 装备每日占用台账 Mapper 接口
+ * 日期区间均为 [startDate, endDate)，endDate 不晚于 startDate 时按 startDate 当晚计算
+ */
+public interface EquipmentDailyUsageMapper {
+
+    /**
+     * 查询装备在区间内的每晚最大占用数
+     */
+    Integer selectMaxReserved(@Param("equipId") Long equipId,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /**
+     * 查询所有装备在区间内的每晚最大占用数，返回 equip_id、reserved 两列（无占用的装备不返回）
+     */
+    List<Map<String, Object>> selectMaxReservedByEquip(@Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /**
+     * 查询指定装备在区间内每晚的占用数，返回 equip_id、night、reserved 三列（占用为 0 的夜晚不返回），equipIds 不能为空
+     */
+    List<Map<String, Object>> selectReservedByNight(@Param("equipIds") List<Long> equipIds,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /**
+     * 为 [checkIn, checkOut) 的每一晚累加占用数，累加后超过 total_stock 的夜晚不写入。
+     * 返回写入的夜晚数，小于入住晚数表示库存不足，调用方需回滚事务
+     */
+    int reserve(@Param("equipId") Long equipId,
+            @Param("checkIn") String checkIn,
+            @Param("checkOut") String checkOut,
+            @Param("quantity") Integer quantity);
+
+    /**
+     * 按多个预订一次扣减其全部装备的占用数，需在删除 booking_equips 之前调用，bookingIds 不能为空
+     */
+    void releaseByBookingIds(@Param("bookingIds") List<Long> bookingIds);
+}
@@ -1,8 +1,9 @@
 package com.camping.mapper;
 
 import com.camping.entity.OperationLog;
+import org.apache.ibatis.annotations.Param;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 操作日志 Mapper 接口
@@ -10,17 +11,41 @@ import java.util.Map;
 public interface OperationLogMapper {
 
     /**
-     * 查询所有日志
+     * 按 (log_time, log_id) 倒序游标分页查询日志
+     * 过滤条件为空时不过滤，时间窗口为 [startTime, endTime)；
+     * cursorTime、cursorId 为上一页最后一条，为空时从最新一条开始
      */
-    List<OperationLog> selectAll(Map<String, Object> params);
+    List<OperationLog> selectPage(@Param("operation") String operation,
+            @Param("operatorId") Long operatorId,
+            @Param("operatorName") String operatorName,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            @Param("cursorTime") LocalDateTime cursorTime,
+            @Param("cursorId") Long cursorId,
+            @Param("limit") int limit);
 
     /**
-     * 按操作类型查询日志
+     * 统计符合条件的日志数，最多数到 cap 条
      */
-    List<OperationLog> selectByOperation(String operation);
+    long countCapped(@Param("operation") String operation,
+            @Param("operatorId") Long operatorId,
+            @Param("operatorName") String operatorName,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            @Param("cap") int cap);
+
+    /**
+     * 按表统计信息估算日志总行数
+     */
+    long estimateTotal();
 
     /**
      * 插入日志
      */
     void insert(OperationLog operationLog);
+
+    /**
+     * 多行插入日志
+     */
+    void insertBatch(@Param("logs") List<OperationLog> logs);
 }
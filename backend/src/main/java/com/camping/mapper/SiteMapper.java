@@ -3,6 +3,7 @@ package com.camping.mapper;
 import com.camping.entity.Site;
 import org.apache.ibatis.annotations.Param;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 营位 Mapper 接口
@@ -14,11 +15,22 @@ public interface SiteMapper {
      */
     List<Site> selectByTypeId(Long typeId);
 
+    /**
+     * 查询所有可用营位（status = 1），按 type_id、site_no 排序
+     */
+    List<Site> selectAll();
+
     /**
      * 根据ID查询营位
      */
     Site selectById(Long siteId);
 
+    /**
+     * 联表查询营位及房型名称（含维护中的营位），typeId 为空时查询所有启用房型下的营位；
+     * 返回 site_id、type_id、site_no、status、type_name 五列
+     */
+    List<Map<String, Object>> selectWithTypeName(@Param("typeId") Long typeId);
+
     /**
      * 查询可用营位（指定时间内无预订冲突）
      */
@@ -26,6 +38,27 @@ public interface SiteMapper {
             @Param("checkIn") String checkIn,
             @Param("checkOut") String checkOut);
 
+    /**
+     * 在候选营位中锁定第一个未被其他事务锁住的营位（FOR UPDATE SKIP LOCKED），
+     * 全部被锁住时返回 null；行锁持有到事务结束
+     */
+    Site lockFirstUnlocked(@Param("siteIds") List<Long> siteIds);
+
+    /**
+     * 按晚统计日期范围内（含两端）的空闲营位数，返回 night、available 两列
+     */
+    List<Map<String, Object>> countAvailableByNight(@Param("typeId") Long typeId,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /**
+     * 一次按房型、按晚统计日期范围内（含两端）的空闲营位数，返回 type_id、night、available 三列；
+     * 没有可用营位的房型不返回，typeIds 不能为空
+     */
+    List<Map<String, Object>> countAvailableByNightForTypes(@Param("typeIds") List<Long> typeIds,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
     /**
      * 插入营位
      */
@@ -2,6 +2,7 @@ package com.camping.mapper;
 
 import com.camping.entity.SiteType;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 房型 Mapper 接口
@@ -13,6 +14,11 @@ public interface SiteTypeMapper {
      */
     List<SiteType> selectAll();
 
+    /**
+     * 按启用房型统计营位数，返回 type_id、type_name、base_price、total_sites、available_sites（status = 1）
+     */
+    List<Map<String, Object>> selectSiteStats();
+
     /**
      * 根据ID查询房型
      */
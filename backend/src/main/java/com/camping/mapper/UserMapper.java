@@ -2,6 +2,7 @@ package com.camping.mapper;
 
 import com.camping.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 用户 Mapper 接口
@@ -28,4 +29,11 @@ public interface UserMapper {
      * 更新用户
      */
     void update(User user);
+
+    /**
+     * 仅当当前密码哈希仍为 expectedPassword 时替换为 newPassword，返回更新行数
+     */
+    int replacePassword(@Param("userId") Long userId,
+            @Param("expectedPassword") String expectedPassword,
+            @Param("newPassword") String newPassword);
 }
@@ -1,7 +1,10 @@
 package com.camping.service;
 
+import com.camping.dto.OperationLogQueryDTO;
 import com.camping.dto.PriceSetDTO;
 import com.camping.entity.OperationLog;
+import java.io.Writer;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
@@ -11,9 +14,9 @@ import java.util.Map;
 public interface AdminService {
 
     /**
-     * 设置日价格
+     * 设置日价格，返回写入的行数
      */
-    void setDailyPrice(PriceSetDTO dto) throws Exception;
+    int setDailyPrice(PriceSetDTO dto) throws Exception;
 
     /**
      * 获取日收入报表
@@ -36,12 +39,28 @@ public interface AdminService {
     List<Object> getTypeStats() throws Exception;
 
     /**
-     * 获取操作日志
+     * 游标分页获取操作日志，返回 items、pageSize、nextPageToken，按需返回 approxTotal
      */
-    Map<String, Object> getOperationLogs(Integer page, Integer pageSize, String operation) throws Exception;
+    Map<String, Object> getOperationLogs(OperationLogQueryDTO query) throws Exception;
 
     /**
      * 更新营位状态
      */
     void updateSiteStatus(Long siteId, Integer status) throws Exception;
+
+    /**
+     * 调整订单价格
+     */
+    void adjustBookingPrice(Long bookingId, BigDecimal newPrice) throws Exception;
+
+    /**
+     * 从 bookings 重建每日收入汇总，返回重建前不一致的行数与重建后的行数
+     */
+    Map<String, Object> rebuildRevenueRollup() throws Exception;
+
+    /**
+     * 按条件导出预订，format 为 csv 或 ndjson，逐行写入 writer，返回导出行数
+     */
+    long exportBookings(String startDate, String endDate, Integer status, Long typeId, String format,
+            Writer writer) throws Exception;
 }
@@ -16,6 +16,11 @@ public interface BookingService {
      */
     Map<String, Object> checkBooking(BookingCheckDTO dto) throws Exception;
 
+    /**
+     * 批量预订检查 - 一次读取所有方案的价格与库存，按顺序返回与 checkBooking 相同结构的结果
+     */
+    List<Map<String, Object>> checkBookingBatch(List<BookingCheckDTO> candidates) throws Exception;
+
     /**
      * 创建订单 - 核心事务方法
      * 包含: 校验库存 -> 计算价格 -> 分配营位 -> 落库
@@ -42,6 +47,17 @@ public interface BookingService {
      */
     void cancelBooking(Long bookingId) throws Exception;
 
+    /**
+     * 取消超过支付保留时长的待支付订单（最多 limit 条）并批量释放其装备，
+     * 返回本批取消的订单数及释放的营位晚数、装备件数、装备晚数
+     */
+    Map<String, Object> expirePendingBookings(int limit) throws Exception;
+
+    /**
+     * 营位分配计数：成功分配的订单数，以及乐观分配时因营位重叠回滚到保存点后换营位的次数
+     */
+    Map<String, Object> allocationStats();
+
     /**
      * 获取订单的装备列表
      */
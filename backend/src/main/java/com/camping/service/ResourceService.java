@@ -1,6 +1,7 @@
 package com.camping.service;
 
 import com.camping.dto.PriceSetDTO;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
@@ -43,4 +44,22 @@ public interface ResourceService {
      * 获取装备详情
      */
     Object getEquipmentDetail(Long equipId) throws Exception;
+
+    /**
+     * 按入住区间一次查询所有容纳 guests 人的房型：区间内每晚最少空闲营位数与住宿总价，
+     * maxPrice 不为空时只返回总价不超过它的房型
+     */
+    List<Object> searchAvailability(String checkIn, String checkOut, Integer guests, BigDecimal maxPrice)
+            throws Exception;
+
+    /**
+     * 灵活日期搜索：[startDate, endDate] 内可连住 nights 晚的所有入住日，按住宿总价升序
+     */
+    List<Object> searchFlexible(Long typeId, String startDate, String endDate, Integer nights) throws Exception;
+
+    /**
+     * 最低价搜索：[startDate, endDate] 内连住 nights 晚、总价最低的 k 个入住日
+     */
+    List<Object> searchCheapest(Long typeId, String startDate, String endDate, Integer nights, Integer k)
+            throws Exception;
 }
@@ -17,9 +17,9 @@ public interface UserService {
     void register(UserRegisterDTO dto) throws Exception;
 
     /**
-     * 用户登录
+     * 用户登录，clientIp 用于登录限流
      */
-    UserInfoDTO login(UserLoginDTO dto) throws Exception;
+    UserInfoDTO login(UserLoginDTO dto, String clientIp) throws Exception;
 
     /**
      * 获取用户信息
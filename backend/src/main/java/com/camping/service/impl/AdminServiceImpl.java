@@ -1,13 +1,26 @@
 package com.camping.service.impl;
 
+import com.camping.audit.AuditLogWriter;
+import com.camping.cache.PriceCalendar;
+import com.camping.cache.QuoteCache;
+import com.camping.cache.ReferenceCatalog;
+import com.camping.cache.SiteOccupancyIndex;
+import com.camping.dto.OperationLogQueryDTO;
 import com.camping.dto.PriceSetDTO;
 import com.camping.entity.*;
 import com.camping.mapper.*;
 import com.camping.service.AdminService;
+import com.camping.util.NightlyRevenue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -19,6 +32,21 @@ import java.util.*;
 @Service
 public class AdminServiceImpl implements AdminService {
 
+    /** Rows per multi-row upsert statement, keeps bind parameters well under the driver limit */
+    private static final int PRICE_UPSERT_CHUNK = 1000;
+
+    /** Upper bound for a single page of operation logs */
+    private static final int MAX_LOG_PAGE_SIZE = 200;
+
+    /** Filtered log counts stop here; the total is reported as approximate */
+    private static final int LOG_COUNT_CAP = 10000;
+
+    /** CSV header for booking export, in column order */
+    private static final String[] EXPORT_COLUMNS = {
+            "bookingId", "userId", "siteId", "typeId", "checkIn", "checkOut", "guestName", "guestPhone",
+            "totalPrice", "status", "createTime", "updateTime"
+    };
+
     @Autowired
     private DailyPriceMapper dailyPriceMapper;
 
@@ -34,32 +62,49 @@ public class AdminServiceImpl implements AdminService {
     @Autowired
     private OperationLogMapper operationLogMapper;
 
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+
+    @Autowired
+    private DailyRevenueRollupMapper dailyRevenueRollupMapper;
+
+    @Autowired
+    private SiteOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private PriceCalendar priceCalendar;
+
+    @Autowired
+    private ReferenceCatalog catalog;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * Set daily prices for multiple dates
+     * Set daily prices for multiple dates in one transaction.
+     * Dates are upserted in chunks of multi-row INSERT ... ON CONFLICT statements.
      */
     @Override
-    public void setDailyPrice(PriceSetDTO dto) throws Exception {
+    @Transactional(rollbackFor = Exception.class)
+    public int setDailyPrice(PriceSetDTO dto) throws Exception {
         if (dto == null || dto.getTypeId() == null || dto.getDates() == null || dto.getPrice() == null) {
             throw new Exception("Missing required parameters");
         }
 
         try {
-            for (String date : dto.getDates()) {
-                DailyPrice existing = dailyPriceMapper.selectByTypeAndDate(dto.getTypeId(), date);
-                if (existing != null) {
-                    existing.setPrice(dto.getPrice());
-                    existing.setUpdateTime(LocalDateTime.now());
-                    dailyPriceMapper.update(existing);
-                } else {
-                    DailyPrice newPrice = new DailyPrice();
-                    newPrice.setTypeId(dto.getTypeId());
-                    newPrice.setSpecificDate(date);
-                    newPrice.setPrice(dto.getPrice());
-                    newPrice.setCreateTime(LocalDateTime.now());
-                    newPrice.setUpdateTime(LocalDateTime.now());
-                    dailyPriceMapper.insert(newPrice);
-                }
+            // ON CONFLICT cannot touch the same row twice in one statement
+            List<String> dates = new ArrayList<>(new LinkedHashSet<>(dto.getDates()));
+            int rowsAffected = 0;
+            for (int from = 0; from < dates.size(); from += PRICE_UPSERT_CHUNK) {
+                List<String> chunk = dates.subList(from, Math.min(from + PRICE_UPSERT_CHUNK, dates.size()));
+                rowsAffected += dailyPriceMapper.upsertBatch(dto.getTypeId(), chunk, dto.getPrice());
             }
+            priceCalendar.invalidate(dto.getTypeId());
+            quoteCache.invalidatePrices(dto.getTypeId(), dates);
+            return rowsAffected;
         } catch (Exception e) {
             throw new Exception("Failed to set price: " + e.getMessage());
         }
@@ -77,37 +122,21 @@ public class AdminServiceImpl implements AdminService {
         Map<String, Object> report = new LinkedHashMap<>();
 
         try {
-            List<Booking> allBookings = bookingMapper.selectAll();
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
+            NightlyRevenue nightly = NightlyRevenue.of(dailyRevenueRollupMapper.selectNightly(startDate, endDate),
+                    start, end);
 
             List<Map<String, Object>> dailyData = new ArrayList<>();
             BigDecimal totalRevenue = BigDecimal.ZERO;
             int totalBookings = 0;
 
-            for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-                String dateStr = date.format(DateTimeFormatter.ISO_DATE);
-                int bookingCount = 0;
-                BigDecimal revenue = BigDecimal.ZERO;
-
-                for (Booking booking : allBookings) {
-                    if (booking.getStatus() == 2) {
-                        LocalDate checkIn = LocalDate.parse(booking.getCheckIn());
-                        LocalDate checkOut = LocalDate.parse(booking.getCheckOut());
-                        if (!date.isBefore(checkIn) && date.isBefore(checkOut)) {
-                            bookingCount++;
-                            int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
-                            if (nights > 0) {
-                                BigDecimal dailyAmount = booking.getTotalPrice().divide(BigDecimal.valueOf(nights), 2,
-                                        BigDecimal.ROUND_HALF_UP);
-                                revenue = revenue.add(dailyAmount);
-                            }
-                        }
-                    }
-                }
+            for (int night = 0; night < nightly.days(); night++) {
+                int bookingCount = nightly.bookingCount(night);
+                BigDecimal revenue = nightly.revenue(night);
 
                 Map<String, Object> dayData = new LinkedHashMap<>();
-                dayData.put("date", dateStr);
+                dayData.put("date", nightly.date(night).format(DateTimeFormatter.ISO_DATE));
                 dayData.put("bookingCount", bookingCount);
                 dayData.put("revenue", revenue);
                 dailyData.add(dayData);
@@ -148,23 +177,17 @@ public class AdminServiceImpl implements AdminService {
 
         try {
             List<SiteType> types = siteTypeMapper.selectAll();
-            List<Booking> allBookings = bookingMapper.selectAll();
-            LocalDate start = LocalDate.parse(startDate);
-            LocalDate end = LocalDate.parse(endDate);
+            Map<Long, Map<String, Object>> arrivalsByType = new HashMap<>();
+            for (Map<String, Object> row : dailyRevenueRollupMapper.selectArrivalsByType(startDate, endDate)) {
+                arrivalsByType.put(((Number) row.get("type_id")).longValue(), row);
+            }
 
             for (SiteType type : types) {
-                int bookingCount = 0;
-                BigDecimal revenue = BigDecimal.ZERO;
-
-                for (Booking booking : allBookings) {
-                    if (booking.getStatus() == 2 && type.getTypeId().equals(booking.getTypeId())) {
-                        LocalDate checkIn = LocalDate.parse(booking.getCheckIn());
-                        if (!checkIn.isBefore(start) && !checkIn.isAfter(end)) {
-                            bookingCount++;
-                            revenue = revenue.add(booking.getTotalPrice());
-                        }
-                    }
-                }
+                Map<String, Object> arrivals = arrivalsByType.get(type.getTypeId());
+                int bookingCount = arrivals != null ? ((Number) arrivals.get("arrival_count")).intValue() : 0;
+                BigDecimal revenue = bookingCount > 0
+                        ? BigDecimal.valueOf(((Number) arrivals.get("arrival_revenue_cents")).longValue(), 2)
+                        : BigDecimal.ZERO;
 
                 Map<String, Object> typeReport = new LinkedHashMap<>();
                 typeReport.put("typeId", type.getTypeId());
@@ -228,27 +251,17 @@ public class AdminServiceImpl implements AdminService {
         List<Object> stats = new ArrayList<>();
 
         try {
-            List<SiteType> types = siteTypeMapper.selectAll();
-
-            for (SiteType type : types) {
-                List<Site> sites = siteMapper.selectByTypeId(type.getTypeId());
-                int availableCount = 0;
-                int occupiedCount = 0;
-
-                for (Site site : sites) {
-                    if (site.getStatus() == 1)
-                        availableCount++;
-                    else
-                        occupiedCount++;
-                }
+            for (Map<String, Object> row : siteTypeMapper.selectSiteStats()) {
+                int totalSites = ((Number) row.get("total_sites")).intValue();
+                int availableCount = ((Number) row.get("available_sites")).intValue();
 
                 Map<String, Object> typeStat = new LinkedHashMap<>();
-                typeStat.put("typeId", type.getTypeId());
-                typeStat.put("typeName", type.getTypeName());
-                typeStat.put("totalSites", sites.size());
+                typeStat.put("typeId", ((Number) row.get("type_id")).longValue());
+                typeStat.put("typeName", row.get("type_name"));
+                typeStat.put("totalSites", totalSites);
                 typeStat.put("availableSites", availableCount);
-                typeStat.put("occupiedSites", occupiedCount);
-                typeStat.put("basePrice", type.getBasePrice());
+                typeStat.put("occupiedSites", totalSites - availableCount);
+                typeStat.put("basePrice", row.get("base_price"));
                 stats.add(typeStat);
             }
 
@@ -260,50 +273,79 @@ public class AdminServiceImpl implements AdminService {
     }
 
     /**
-     * Get operation logs with pagination
+     * Get operation logs with keyset pagination on (log_time, log_id).
+     * The page token is an opaque encoding of the last row returned; filters are applied in SQL.
      */
     @Override
-    public Map<String, Object> getOperationLogs(Integer page, Integer pageSize, String operation) throws Exception {
-        if (page == null || pageSize == null) {
-            throw new Exception("Missing pagination parameters");
+    public Map<String, Object> getOperationLogs(OperationLogQueryDTO query) throws Exception {
+        if (query == null) {
+            throw new Exception("Missing query parameters");
+        }
+        int pageSize = query.getPageSize() != null ? query.getPageSize() : 20;
+        if (pageSize < 1 || pageSize > MAX_LOG_PAGE_SIZE) {
+            throw new Exception("pageSize must be between 1 and " + MAX_LOG_PAGE_SIZE);
+        }
+
+        LocalDateTime startTime = parseLogTime(query.getStartTime(), false);
+        LocalDateTime endTime = parseLogTime(query.getEndTime(), true);
+        LocalDateTime cursorTime = null;
+        Long cursorId = null;
+        if (query.getPageToken() != null && !query.getPageToken().isEmpty()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(query.getPageToken()),
+                        StandardCharsets.UTF_8).split("\\|", 2);
+                cursorTime = LocalDateTime.parse(parts[0]);
+                cursorId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new Exception("Invalid page token");
+            }
         }
 
         Map<String, Object> result = new LinkedHashMap<>();
 
         try {
-            List<OperationLog> logs;
-            if (operation != null && !operation.isEmpty()) {
-                logs = operationLogMapper.selectByOperation(operation);
-            } else {
-                Map<String, Object> params = new HashMap<>();
-                logs = operationLogMapper.selectAll(params);
+            // Fetch one extra row to know whether another page exists
+            List<OperationLog> logs = operationLogMapper.selectPage(query.getOperation(), query.getOperatorId(),
+                    query.getOperatorName(), startTime, endTime, cursorTime, cursorId, pageSize + 1);
+            boolean hasMore = logs.size() > pageSize;
+            if (hasMore) {
+                logs = logs.subList(0, pageSize);
             }
 
-            int total = logs.size();
-            int startIndex = (page - 1) * pageSize;
-            int endIndex = Math.min(startIndex + pageSize, total);
-
             List<Object> items = new ArrayList<>();
-            if (startIndex < total) {
-                for (int i = startIndex; i < endIndex; i++) {
-                    OperationLog log = logs.get(i);
-                    Map<String, Object> item = new LinkedHashMap<>();
-                    item.put("logId", log.getLogId());
-                    item.put("operation", log.getOperation());
-                    item.put("operatorId", log.getOperatorId());
-                    item.put("operatorName", log.getOperatorName());
-                    item.put("description", log.getDescription());
-                    item.put("details", log.getDetails());
-                    item.put("logTime", log.getLogTime());
-                    items.add(item);
-                }
+            for (OperationLog log : logs) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("logId", log.getLogId());
+                item.put("operation", log.getOperation());
+                item.put("operatorId", log.getOperatorId());
+                item.put("operatorName", log.getOperatorName());
+                item.put("description", log.getDescription());
+                item.put("details", log.getDetails());
+                item.put("logTime", log.getLogTime());
+                items.add(item);
+            }
+
+            String nextPageToken = null;
+            if (hasMore) {
+                OperationLog last = logs.get(logs.size() - 1);
+                nextPageToken = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        (last.getLogTime() + "|" + last.getLogId()).getBytes(StandardCharsets.UTF_8));
             }
 
             result.put("items", items);
-            result.put("total", total);
-            result.put("page", page);
             result.put("pageSize", pageSize);
-            result.put("totalPages", (total + pageSize - 1) / pageSize);
+            result.put("nextPageToken", nextPageToken);
+            if (Boolean.TRUE.equals(query.getWithTotal())) {
+                boolean filtered = (query.getOperation() != null && !query.getOperation().isEmpty())
+                        || query.getOperatorId() != null
+                        || (query.getOperatorName() != null && !query.getOperatorName().isEmpty())
+                        || startTime != null || endTime != null;
+                // Planner statistics for the whole table; filtered counts stop at the cap
+                result.put("approxTotal", filtered
+                        ? operationLogMapper.countCapped(query.getOperation(), query.getOperatorId(),
+                                query.getOperatorName(), startTime, endTime, LOG_COUNT_CAP)
+                        : operationLogMapper.estimateTotal());
+            }
 
             return result;
 
@@ -312,6 +354,24 @@ public class AdminServiceImpl implements AdminService {
         }
     }
 
+    /**
+     * Parse a log time filter; a bare date means the start of that day, or the start of the next day for an end bound
+     */
+    private static LocalDateTime parseLogTime(String value, boolean endBound) throws Exception {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                LocalDate date = LocalDate.parse(value);
+                return endBound ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+            }
+            return LocalDateTime.parse(value);
+        } catch (RuntimeException e) {
+            throw new Exception("Invalid time: " + value);
+        }
+    }
+
     /**
      * Update site status
      */
@@ -334,6 +394,9 @@ public class AdminServiceImpl implements AdminService {
             site.setStatus(status);
             site.setUpdateTime(LocalDateTime.now());
             siteMapper.update(site);
+            occupancyIndex.invalidateType(site.getTypeId());
+            catalog.refresh();
+            quoteCache.invalidateType(site.getTypeId());
 
             // Log operation
             OperationLog log = new OperationLog(
@@ -343,10 +406,127 @@ public class AdminServiceImpl implements AdminService {
                     "Update site status to: " + (status == 1 ? "Normal" : "Maintenance"),
                     "siteId=" + siteId + ", newStatus=" + status,
                     LocalDateTime.now());
-            operationLogMapper.insert(log);
+            auditLogWriter.write(log);
 
         } catch (Exception e) {
             throw new Exception("Failed to update site status: " + e.getMessage());
         }
     }
+
+    /**
+     * Adjust booking price and move its revenue in the rollup to the new amount
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void adjustBookingPrice(Long bookingId, BigDecimal newPrice) throws Exception {
+        if (bookingId == null || newPrice == null) {
+            throw new Exception("Missing required parameters");
+        }
+
+        // Lock the row so pay, cancel and the expiry sweeper cannot change its status while the rollup is moved
+        Booking booking = bookingMapper.selectByIdForUpdate(bookingId);
+        if (booking == null) {
+            throw new Exception("Booking not found");
+        }
+
+        boolean paid = booking.getStatus() != null && booking.getStatus() == 2;
+        if (paid) {
+            dailyRevenueRollupMapper.applyBooking(bookingId, -1);
+        }
+
+        BigDecimal oldPrice = booking.getTotalPrice();
+        bookingMapper.updateTotalPrice(bookingId, newPrice);
+
+        if (paid) {
+            dailyRevenueRollupMapper.applyBooking(bookingId, 1);
+        }
+
+        // Log operation
+        OperationLog log = new OperationLog(
+                "ADJUST_PRICE",
+                null,
+                "ADMIN",
+                "Adjust booking price from " + oldPrice + " to " + newPrice,
+                "bookingId=" + bookingId,
+                LocalDateTime.now());
+        auditLogWriter.write(log);
+    }
+
+    /**
+     * Recompute the daily revenue rollup from paid bookings.
+     * The table is locked for the rebuild so concurrent pay/cancel updates wait and apply afterwards.
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> rebuildRevenueRollup() throws Exception {
+        dailyRevenueRollupMapper.lockForRebuild();
+        int driftRows = dailyRevenueRollupMapper.countDrift();
+        dailyRevenueRollupMapper.deleteAll();
+        int rows = dailyRevenueRollupMapper.insertFromBookings();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("driftRows", driftRows);
+        result.put("rows", rows);
+        return result;
+    }
+
+    /**
+     * Stream bookings matching the filters as CSV or NDJSON.
+     * Rows are read through a cursor with a JDBC fetch size, so memory stays flat regardless of table size;
+     * the transaction keeps the connection open (and autocommit off, which PostgreSQL needs to honour fetch size).
+     */
+    @Override
+    @Transactional(readOnly = true, rollbackFor = Exception.class)
+    public long exportBookings(String startDate, String endDate, Integer status, Long typeId, String format,
+            Writer writer) throws Exception {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (!ndjson && !"csv".equalsIgnoreCase(format)) {
+            throw new Exception("Unsupported export format: " + format);
+        }
+
+        if (!ndjson) {
+            writer.write(String.join(",", EXPORT_COLUMNS));
+            writer.write('\n');
+        }
+
+        long rows = 0;
+        try (Cursor<Booking> cursor = bookingMapper.selectForExport(startDate, endDate, status, typeId)) {
+            for (Booking booking : cursor) {
+                if (ndjson) {
+                    writer.write(objectMapper.writeValueAsString(booking));
+                } else {
+                    writeCsvRow(writer, booking);
+                }
+                writer.write('\n');
+                rows++;
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private void writeCsvRow(Writer writer, Booking booking) throws IOException {
+        Object[] values = {
+                booking.getBookingId(), booking.getUserId(), booking.getSiteId(), booking.getTypeId(),
+                booking.getCheckIn(), booking.getCheckOut(), booking.getGuestName(), booking.getGuestPhone(),
+                booking.getTotalPrice(), booking.getStatus(), booking.getCreateTime(), booking.getUpdateTime()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
 }
@@ -1,20 +1,34 @@
 package com.camping.service.impl;
 
+import com.camping.cache.PriceCalendar;
+import com.camping.cache.QuoteCache;
+import com.camping.cache.ReferenceCatalog;
+import com.camping.cache.SiteOccupancyIndex;
 import com.camping.dto.BookingCheckDTO;
 import com.camping.dto.BookingCreateDTO;
 import com.camping.dto.EquipSelectDTO;
 import com.camping.entity.*;
 import com.camping.mapper.*;
 import com.camping.service.BookingService;
+import com.camping.util.DateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
 
 /**
  * 预订业务实现
@@ -22,14 +36,19 @@ import java.util.*;
 @Service
 public class BookingServiceImpl implements BookingService {
 
-    @Autowired
-    private SiteTypeMapper siteTypeMapper;
+    /** 营位分配方式：先锁定营位再插入 */
+    private static final String ALLOCATION_SKIP_LOCKED = "skip-locked";
 
-    @Autowired
-    private SiteMapper siteMapper;
+    /** exclusion_violation，违反 bookings_site_no_overlap 约束 */
+    private static final String SQLSTATE_EXCLUSION_VIOLATION = "23P01";
+
+    private static final String STAY_LENGTH_MESSAGE = "入住晚数须在 1 ~ " + DateUtil.MAX_STAY_NIGHTS + " 晚之间";
+
+    /** 批量检查时一组方案的日期并集最多覆盖的晚数 */
+    private static final int MAX_BATCH_SPAN_NIGHTS = 366;
 
     @Autowired
-    private EquipmentMapper equipmentMapper;
+    private SiteMapper siteMapper;
 
     @Autowired
     private DailyPriceMapper dailyPriceMapper;
@@ -40,6 +59,36 @@ public class BookingServiceImpl implements BookingService {
     @Autowired
     private BookingEquipMapper bookingEquipMapper;
 
+    @Autowired
+    private EquipmentDailyUsageMapper equipmentDailyUsageMapper;
+
+    @Autowired
+    private SiteOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private ReferenceCatalog catalog;
+
+    @Autowired
+    private PriceCalendar priceCalendar;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Value("${camping.booking.allocation:optimistic}")
+    private String allocationMode;
+
+    @Value("${camping.booking.insert-attempts:5}")
+    private int insertAttempts;
+
+    @Value("${camping.booking.check-batch-max:20}")
+    private int checkBatchMax;
+
+    @Value("${camping.booking.payment-hold-minutes:30}")
+    private long paymentHoldMinutes;
+
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong overlapRetries = new AtomicLong();
+
     /**
      * 预订前检查 - 不锁库存，仅计算价格
      */
@@ -49,103 +98,283 @@ public class BookingServiceImpl implements BookingService {
             throw new Exception("参数不完整");
         }
 
-        Map<String, Object> result = new LinkedHashMap<>();
-
         try {
             // 1. 查询房型信息
-            SiteType siteType = siteTypeMapper.selectById(dto.getTypeId());
+            SiteType siteType = catalog.siteType(dto.getTypeId());
 
             if (siteType == null) {
-                result.put("isAvailable", false);
-                result.put("msg", "房型不存在");
-                return result;
+                return unavailable("房型不存在");
             }
 
-            // 2. 计算天数
-            int nights = calculateNights(dto.getCheckIn(), dto.getCheckOut());
+            // 相同参数的检查结果直接从缓存返回，库存或价格变化时按房型与日期失效
+            QuoteCache.Key key = QuoteCache.keyOf(dto);
+            if (key != null) {
+                Map<String, Object> cached = quoteCache.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            long seenSequence = key != null ? quoteCache.sequence(key) : 0;
 
-            // 3. 查询日价格并累计
-            List<Map<String, Object>> priceDetail = new ArrayList<>();
-            BigDecimal sitePrice = BigDecimal.ZERO;
+            // 2. 计算天数，超长区间在读取价格日历前拒绝
+            int nights = calculateNights(dto.getCheckIn(), dto.getCheckOut());
+            if (!DateUtil.isValidStayLength(nights)) {
+                return unavailable(STAY_LENGTH_MESSAGE);
+            }
 
-            LocalDate startDate = LocalDate.parse(dto.getCheckIn());
-            LocalDate endDate = LocalDate.parse(dto.getCheckOut());
+            // 3. 从价格日历读取每晚价格与总价
+            BigDecimal sitePrice = priceCalendar.stayTotal(siteType, dto.getCheckIn(), dto.getCheckOut());
+            BigDecimal[] dayPrices = priceCalendar.nightlyPrices(siteType, dto.getCheckIn(), dto.getCheckOut());
 
-            for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
-                String dateStr = date.format(DateTimeFormatter.ISO_DATE);
-                DailyPrice dailyPrice = dailyPriceMapper.selectByTypeAndDate(dto.getTypeId(), dateStr);
+            // 4. 检查营位可用性
+            List<Site> availableSites = occupancyIndex.findAvailable(dto.getTypeId(), dto.getCheckIn(),
+                    dto.getCheckOut());
+            boolean siteAvailable = availableSites != null && !availableSites.isEmpty();
 
-                BigDecimal dayPrice;
-                if (dailyPrice != null && dailyPrice.getPrice() != null) {
-                    dayPrice = dailyPrice.getPrice();
-                } else {
-                    dayPrice = siteType.getBasePrice();
-                }
+            // 5. 装备库存取入住期间每晚占用的最大值
+            Map<String, Object> result = quote(dto, nights, sitePrice, dayPrices, siteAvailable, equipId -> {
+                Integer usedCount = equipmentDailyUsageMapper.selectMaxReserved(
+                        equipId, dto.getCheckIn(), dto.getCheckOut());
+                return usedCount != null ? usedCount : 0;
+            });
+            if (key != null) {
+                quoteCache.put(key, result, seenSequence);
+            }
+            return result;
+        } catch (Exception e) {
+            return unavailable("检查失败: " + e.getMessage());
+        }
+    }
 
-                sitePrice = sitePrice.add(dayPrice);
+    /**
+     * 批量预订检查 - 入住日期相近的方案分为一组，每组一次读取日期并集内的价格、营位占用与装备占用，再在内存中逐个计算；
+     * 每组并集不超过 MAX_BATCH_SPAN_NIGHTS 晚。每个方案的返回结构与 checkBooking 相同，单个方案参数有误只影响该方案
+     */
+    @Override
+    public List<Map<String, Object>> checkBookingBatch(List<BookingCheckDTO> candidates) throws Exception {
+        if (candidates == null || candidates.isEmpty()) {
+            throw new Exception("参数不完整");
+        }
+        if (candidates.size() > checkBatchMax) {
+            throw new Exception("一次最多检查 " + checkBatchMax + " 个方案");
+        }
 
-                Map<String, Object> dayDetail = new LinkedHashMap<>();
-                dayDetail.put("date", dateStr);
-                dayDetail.put("price", dayPrice);
-                priceDetail.add(dayDetail);
+        // 1. 逐个校验方案
+        int size = candidates.size();
+        LocalDate[] checkIns = new LocalDate[size];
+        LocalDate[] checkOuts = new LocalDate[size];
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(size, null));
+        List<Integer> valid = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            String error = validateCandidate(candidates.get(i), checkIns, checkOuts, i);
+            if (error != null) {
+                results.set(i, unavailable(error));
+            } else {
+                valid.add(i);
             }
+        }
 
-            // 4. 检查营位可用性
-            List<Site> availableSites = siteMapper.selectAvailable(dto.getTypeId(), dto.getCheckIn(),
-                    dto.getCheckOut());
-            boolean siteAvailable = availableSites != null && !availableSites.isEmpty();
+        // 2. 按入住日期排序后贪心分组，相隔很远的方案不会让读取范围覆盖中间的整个间隔
+        valid.sort(Comparator.comparing((Integer i) -> checkIns[i]));
+        int first = 0;
+        while (first < valid.size()) {
+            LocalDate spanStart = checkIns[valid.get(first)];
+            LocalDate spanEnd = checkOuts[valid.get(first)];
+            int next = first + 1;
+            while (next < valid.size()) {
+                LocalDate end = checkOuts[valid.get(next)].isAfter(spanEnd) ? checkOuts[valid.get(next)] : spanEnd;
+                if (ChronoUnit.DAYS.between(spanStart, end) > MAX_BATCH_SPAN_NIGHTS) {
+                    break;
+                }
+                spanEnd = end;
+                next++;
+            }
+            quoteGroup(candidates, valid.subList(first, next), checkIns, checkOuts, spanStart, spanEnd, results);
+            first = next;
+        }
+        return results;
+    }
 
-            // 5. 计算装备价格并检查库存
-            BigDecimal equipmentPrice = BigDecimal.ZERO;
-            boolean equipAvailable = true;
+    /**
+     * 校验单个批量检查方案并解析日期，有误时返回错误信息
+     */
+    private String validateCandidate(BookingCheckDTO dto, LocalDate[] checkIns, LocalDate[] checkOuts, int i) {
+        if (dto == null || dto.getTypeId() == null || dto.getCheckIn() == null || dto.getCheckOut() == null) {
+            return "参数不完整";
+        }
+        if (catalog.siteType(dto.getTypeId()) == null) {
+            return "房型不存在";
+        }
+        try {
+            checkIns[i] = LocalDate.parse(dto.getCheckIn());
+            checkOuts[i] = LocalDate.parse(dto.getCheckOut());
+        } catch (DateTimeParseException e) {
+            return "检查失败: " + e.getMessage();
+        }
+        if (!checkOuts[i].isAfter(checkIns[i])) {
+            return "离店日期必须晚于入住日期";
+        }
+        // 单个方案自成一组时，其长度即该组的读取范围
+        if (ChronoUnit.DAYS.between(checkIns[i], checkOuts[i]) > MAX_BATCH_SPAN_NIGHTS) {
+            return "入住晚数不能超过 " + MAX_BATCH_SPAN_NIGHTS + " 晚";
+        }
+        if (dto.getEquipments() != null) {
+            for (EquipSelectDTO equip : dto.getEquipments()) {
+                if (equip == null || equip.getEquipId() == null || equip.getCount() == null || equip.getCount() <= 0) {
+                    return "装备参数无效";
+                }
+            }
+        }
+        return null;
+    }
 
-            if (dto.getEquipments() != null && !dto.getEquipments().isEmpty()) {
+    /**
+     * 计算一组方案：一次读取 [spanStart, spanEnd) 内组内房型的价格、营位占用与装备占用，结果按原下标写入 results
+     */
+    private void quoteGroup(List<BookingCheckDTO> candidates, List<Integer> group, LocalDate[] checkIns,
+            LocalDate[] checkOuts, LocalDate spanStart, LocalDate spanEnd, List<Map<String, Object>> results) {
+        Map<Long, SiteType> types = new LinkedHashMap<>();
+        Set<Long> equipIds = new LinkedHashSet<>();
+        for (int i : group) {
+            BookingCheckDTO dto = candidates.get(i);
+            types.put(dto.getTypeId(), catalog.siteType(dto.getTypeId()));
+            if (dto.getEquipments() != null) {
                 for (EquipSelectDTO equip : dto.getEquipments()) {
-                    Equipment equipment = equipmentMapper.selectById(equip.getEquipId());
-                    if (equipment != null) {
-                        // 计算装备价格 (按天计费)
-                        BigDecimal equipCost = equipment.getUnitPrice()
-                                .multiply(new BigDecimal(equip.getCount()))
-                                .multiply(new BigDecimal(nights));
-                        equipmentPrice = equipmentPrice.add(equipCost);
+                    equipIds.add(equip.getEquipId());
+                }
+            }
+        }
+        String spanFrom = spanStart.format(DateTimeFormatter.ISO_DATE);
+        String spanTo = spanEnd.format(DateTimeFormatter.ISO_DATE);
+        int spanNights = (int) ChronoUnit.DAYS.between(spanStart, spanEnd);
+
+        // 1. 一次读取并集内所有房型的每晚价格
+        Map<Long, long[]> centsByType = priceCalendar.nightlyCents(new ArrayList<>(types.values()), spanFrom, spanTo);
+
+        // 2. 每个房型一次判断其全部方案是否有营位整段空闲
+        Map<Integer, Boolean> siteAvailable = new HashMap<>();
+        for (Long typeId : types.keySet()) {
+            List<Integer> indexes = new ArrayList<>();
+            List<int[]> stays = new ArrayList<>();
+            for (int i : group) {
+                if (typeId.equals(candidates.get(i).getTypeId())) {
+                    indexes.add(i);
+                    stays.add(new int[] {
+                            (int) ChronoUnit.DAYS.between(spanStart, checkIns[i]),
+                            (int) ChronoUnit.DAYS.between(spanStart, checkOuts[i]) });
+                }
+            }
+            boolean[] free = occupancyIndex.hasFreeSite(typeId, spanFrom, spanTo, stays);
+            for (int j = 0; j < free.length; j++) {
+                siteAvailable.put(indexes.get(j), free[j]);
+            }
+        }
 
-                        // 检查库存
-                        Integer usedCount = bookingEquipMapper.sumQuantityByEquipAndDate(
-                                equip.getEquipId(), dto.getCheckIn(), dto.getCheckOut());
-                        int used = usedCount != null ? usedCount : 0;
-                        int available = (equipment.getTotalStock() != null ? equipment.getTotalStock() : 0) - used;
+        // 3. 一次读取并集内所有相关装备的每晚占用
+        Map<Long, int[]> reservedByEquip = new HashMap<>();
+        if (!equipIds.isEmpty()) {
+            long first = spanStart.toEpochDay();
+            for (Map<String, Object> row : equipmentDailyUsageMapper.selectReservedByNight(
+                    new ArrayList<>(equipIds), spanFrom, spanTo)) {
+                int[] reserved = reservedByEquip.computeIfAbsent(((Number) row.get("equip_id")).longValue(),
+                        id -> new int[spanNights]);
+                int night = (int) (LocalDate.parse((String) row.get("night")).toEpochDay() - first);
+                reserved[night] = ((Number) row.get("reserved")).intValue();
+            }
+        }
+
+        // 4. 逐个方案在内存中计算
+        for (int i : group) {
+            BookingCheckDTO dto = candidates.get(i);
+            int from = (int) ChronoUnit.DAYS.between(spanStart, checkIns[i]);
+            int to = (int) ChronoUnit.DAYS.between(spanStart, checkOuts[i]);
+
+            long[] cents = centsByType.get(dto.getTypeId());
+            BigDecimal[] dayPrices = new BigDecimal[to - from];
+            long siteCents = 0;
+            for (int n = from; n < to; n++) {
+                dayPrices[n - from] = BigDecimal.valueOf(cents[n], 2);
+                siteCents += cents[n];
+            }
 
-                        if (available < equip.getCount()) {
-                            equipAvailable = false;
+            results.set(i, quote(dto, to - from, BigDecimal.valueOf(siteCents, 2), dayPrices, siteAvailable.get(i),
+                    equipId -> {
+                        int[] reserved = reservedByEquip.get(equipId);
+                        int used = 0;
+                        for (int n = from; reserved != null && n < to; n++) {
+                            used = Math.max(used, reserved[n]);
                         }
+                        return used;
+                    }));
+        }
+    }
+
+    /**
+     * 由每晚价格、营位可用性与装备占用组装预订检查结果
+     * usedByEquip 返回装备在入住期间每晚占用的最大值
+     */
+    private Map<String, Object> quote(BookingCheckDTO dto, int nights, BigDecimal sitePrice, BigDecimal[] dayPrices,
+            boolean siteAvailable, ToIntFunction<Long> usedByEquip) {
+        List<Map<String, Object>> priceDetail = new ArrayList<>();
+        LocalDate startDate = LocalDate.parse(dto.getCheckIn());
+        for (int i = 0; i < dayPrices.length; i++) {
+            Map<String, Object> dayDetail = new LinkedHashMap<>();
+            dayDetail.put("date", startDate.plusDays(i).format(DateTimeFormatter.ISO_DATE));
+            dayDetail.put("price", dayPrices[i]);
+            priceDetail.add(dayDetail);
+        }
+
+        // 计算装备价格并检查库存
+        BigDecimal equipmentPrice = BigDecimal.ZERO;
+        boolean equipAvailable = true;
+
+        if (dto.getEquipments() != null && !dto.getEquipments().isEmpty()) {
+            for (EquipSelectDTO equip : dto.getEquipments()) {
+                Equipment equipment = catalog.equipment(equip.getEquipId());
+                if (equipment != null) {
+                    // 计算装备价格 (按天计费)
+                    BigDecimal equipCost = equipment.getUnitPrice()
+                            .multiply(new BigDecimal(equip.getCount()))
+                            .multiply(new BigDecimal(nights));
+                    equipmentPrice = equipmentPrice.add(equipCost);
+
+                    // 检查库存
+                    int used = usedByEquip.applyAsInt(equip.getEquipId());
+                    int available = (equipment.getTotalStock() != null ? equipment.getTotalStock() : 0) - used;
+
+                    if (available < equip.getCount()) {
+                        equipAvailable = false;
                     }
                 }
             }
+        }
 
-            // 6. 计算总价
-            BigDecimal totalPrice = sitePrice.add(equipmentPrice);
-
-            boolean isAvailable = siteAvailable && equipAvailable;
-            String msg = isAvailable ? "可预订" : (!siteAvailable ? "营位已满" : "装备库存不足");
-
-            result.put("isAvailable", isAvailable);
-            result.put("msg", msg);
-            result.put("totalPrice", totalPrice);
+        // 计算总价
+        BigDecimal totalPrice = sitePrice.add(equipmentPrice);
 
-            Map<String, Object> priceDetailMap = new LinkedHashMap<>();
-            priceDetailMap.put("sitePrice", sitePrice);
-            priceDetailMap.put("dailyPrices", priceDetail);
-            priceDetailMap.put("equipmentPrice", equipmentPrice);
-            priceDetailMap.put("nights", nights);
-            result.put("priceDetail", priceDetailMap);
+        boolean isAvailable = siteAvailable && equipAvailable;
+        String msg = isAvailable ? "可预订" : (!siteAvailable ? "营位已满" : "装备库存不足");
 
-            return result;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("isAvailable", isAvailable);
+        result.put("msg", msg);
+        result.put("totalPrice", totalPrice);
+
+        Map<String, Object> priceDetailMap = new LinkedHashMap<>();
+        priceDetailMap.put("sitePrice", sitePrice);
+        priceDetailMap.put("dailyPrices", priceDetail);
+        priceDetailMap.put("equipmentPrice", equipmentPrice);
+        priceDetailMap.put("nights", nights);
+        result.put("priceDetail", priceDetailMap);
+        return result;
+    }
 
-        } catch (Exception e) {
-            result.put("isAvailable", false);
-            result.put("msg", "检查失败: " + e.getMessage());
-            return result;
-        }
+    private static Map<String, Object> unavailable(String msg) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("isAvailable", false);
+        result.put("msg", msg);
+        return result;
     }
 
     /**
@@ -166,22 +395,29 @@ public class BookingServiceImpl implements BookingService {
             if (dto.getUserId() == null || dto.getTypeId() == null) {
                 throw new Exception("用户ID或房型ID不能为空");
             }
+            if (dto.getCheckIn() == null || dto.getCheckOut() == null) {
+                throw new Exception("入住或离店日期不能为空");
+            }
+            int nights = calculateNights(dto.getCheckIn(), dto.getCheckOut());
+            if (!DateUtil.isValidStayLength(nights)) {
+                throw new Exception(STAY_LENGTH_MESSAGE);
+            }
 
             // 2. 查询房型
-            SiteType siteType = siteTypeMapper.selectById(dto.getTypeId());
+            SiteType siteType = catalog.siteType(dto.getTypeId());
             if (siteType == null) {
                 throw new Exception("房型不存在");
             }
 
-            // 3. 装备库存检查
+            // 3. 装备库存检查（快速拒绝；并发下以第 7 步 reserve 的库存校验为准）
             if (dto.getEquipments() != null && !dto.getEquipments().isEmpty()) {
                 for (EquipSelectDTO equip : dto.getEquipments()) {
-                    Equipment equipment = equipmentMapper.selectById(equip.getEquipId());
+                    Equipment equipment = catalog.equipment(equip.getEquipId());
                     if (equipment == null) {
                         throw new Exception("装备不存在: " + equip.getEquipId());
                     }
 
-                    Integer usedCount = bookingEquipMapper.sumQuantityByEquipAndDate(
+                    Integer usedCount = equipmentDailyUsageMapper.selectMaxReserved(
                             equip.getEquipId(), dto.getCheckIn(), dto.getCheckOut());
                     int used = usedCount != null ? usedCount : 0;
                     int available = (equipment.getTotalStock() != null ? equipment.getTotalStock() : 0) - used;
@@ -192,36 +428,20 @@ public class BookingServiceImpl implements BookingService {
                 }
             }
 
-            // 4. 营位自动分配
-            List<Site> availableSites = siteMapper.selectAvailable(dto.getTypeId(), dto.getCheckIn(),
+            // 4. 候选营位
+            List<Site> availableSites = occupancyIndex.findAvailable(dto.getTypeId(), dto.getCheckIn(),
                     dto.getCheckOut());
             if (availableSites == null || availableSites.isEmpty()) {
                 throw new Exception("暂无可用营位");
             }
-            Site allocatedSite = availableSites.get(0);
 
             // 5. 价格计算 (服务端计算，不信任前端传来的价格)
-            int nights = calculateNights(dto.getCheckIn(), dto.getCheckOut());
-            BigDecimal sitePrice = BigDecimal.ZERO;
-
-            LocalDate startDate = LocalDate.parse(dto.getCheckIn());
-            LocalDate endDate = LocalDate.parse(dto.getCheckOut());
-
-            for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
-                String dateStr = date.format(DateTimeFormatter.ISO_DATE);
-                DailyPrice dailyPrice = dailyPriceMapper.selectByTypeAndDate(dto.getTypeId(), dateStr);
-
-                if (dailyPrice != null && dailyPrice.getPrice() != null) {
-                    sitePrice = sitePrice.add(dailyPrice.getPrice());
-                } else {
-                    sitePrice = sitePrice.add(siteType.getBasePrice());
-                }
-            }
+            BigDecimal sitePrice = priceCalendar.stayTotal(siteType, dto.getCheckIn(), dto.getCheckOut());
 
             BigDecimal equipmentPrice = BigDecimal.ZERO;
             if (dto.getEquipments() != null && !dto.getEquipments().isEmpty()) {
                 for (EquipSelectDTO equip : dto.getEquipments()) {
-                    Equipment equipment = equipmentMapper.selectById(equip.getEquipId());
+                    Equipment equipment = catalog.equipment(equip.getEquipId());
                     if (equipment != null) {
                         BigDecimal equipCost = equipment.getUnitPrice()
                                 .multiply(new BigDecimal(equip.getCount()))
@@ -237,7 +457,6 @@ public class BookingServiceImpl implements BookingService {
             Booking booking = new Booking();
             booking.setUserId(dto.getUserId());
             booking.setTypeId(dto.getTypeId());
-            booking.setSiteId(allocatedSite.getSiteId());
             booking.setCheckIn(dto.getCheckIn());
             booking.setCheckOut(dto.getCheckOut());
             booking.setGuestName(dto.getGuestName());
@@ -246,10 +465,19 @@ public class BookingServiceImpl implements BookingService {
             booking.setStatus(1); // 1: 待支付
             booking.setCreateTime(LocalDateTime.now());
 
-            bookingMapper.insert(booking);
+            // 营位分配并插入订单
+            Site allocatedSite = ALLOCATION_SKIP_LOCKED.equals(allocationMode)
+                    ? insertWithLockedSite(booking, availableSites)
+                    : insertOptimistically(booking, availableSites);
+            if (allocatedSite == null) {
+                throw new Exception("暂无可用营位");
+            }
+            allocations.incrementAndGet();
             Long bookingId = booking.getBookingId();
+            occupancyIndex.occupy(booking);
 
             // 7. 保存装备关联
+            List<Long> equipIds = new ArrayList<>();
             if (dto.getEquipments() != null && !dto.getEquipments().isEmpty()) {
                 for (EquipSelectDTO equip : dto.getEquipments()) {
                     BookingEquip bookingEquip = new BookingEquip();
@@ -258,8 +486,15 @@ public class BookingServiceImpl implements BookingService {
                     bookingEquip.setQuantity(equip.getCount());
 
                     bookingEquipMapper.insert(bookingEquip);
+                    int reservedNights = equipmentDailyUsageMapper.reserve(equip.getEquipId(), dto.getCheckIn(),
+                            dto.getCheckOut(), equip.getCount());
+                    if (reservedNights < nights) {
+                        throw new Exception("装备库存不足: " + catalog.equipment(equip.getEquipId()).getEquipName());
+                    }
+                    equipIds.add(equip.getEquipId());
                 }
             }
+            quoteCache.invalidateStay(dto.getTypeId(), dto.getCheckIn(), dto.getCheckOut(), equipIds);
 
             // 8. 返回结果
             result.put("bookingId", bookingId);
@@ -276,6 +511,7 @@ public class BookingServiceImpl implements BookingService {
 
     /**
      * 支付订单
+     * 状态校验、改状态与计入收入汇总由 markPaid 一条语句完成，与取消、超时清理并发时只有一方成功
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -284,20 +520,28 @@ public class BookingServiceImpl implements BookingService {
             throw new Exception("订单ID不能为空");
         }
 
-        Booking booking = bookingMapper.selectById(bookingId);
+        // 超过保留时长的订单即使尚未被清理也不能再支付
+        LocalDateTime holdCutoff = paymentHoldMinutes > 0
+                ? LocalDateTime.now().minusMinutes(paymentHoldMinutes)
+                : null;
+        Booking booking = bookingMapper.markPaid(bookingId, holdCutoff);
 
         if (booking == null) {
-            throw new Exception("订单不存在");
-        }
-
-        if (booking.getStatus() != 1) { // 1: 待支付
-            throw new Exception("订单状态无效，无法支付");
+            // 仅在失败时读取订单，区分失败原因
+            Booking current = bookingMapper.selectById(bookingId);
+            if (current == null) {
+                throw new Exception("订单不存在");
+            }
+            if (current.getStatus() != 1) { // 1: 待支付
+                throw new Exception("订单状态无效，无法支付");
+            }
+            throw new Exception("订单已超过支付时限，请重新下单");
         }
 
-        booking.setStatus(2); // 2: 已支付
-        booking.setUpdateTime(LocalDateTime.now());
-
-        bookingMapper.update(booking);
+        // 已支付仍占用营位，重新确认索引中的占用位
+        occupancyIndex.occupy(booking);
+        quoteCache.invalidateStay(booking.getTypeId(), booking.getCheckIn(), booking.getCheckOut(),
+                Collections.emptyList());
     }
 
     /**
@@ -333,6 +577,7 @@ public class BookingServiceImpl implements BookingService {
 
     /**
      * 取消订单
+     * 改状态、释放装备库存（删除关联并扣减台账）、已支付订单扣除收入汇总由 cancelAndRelease 一条语句完成
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -341,23 +586,90 @@ public class BookingServiceImpl implements BookingService {
             throw new Exception("订单ID不能为空");
         }
 
-        Booking booking = bookingMapper.selectById(bookingId);
+        Map<String, Object> cancelled = bookingMapper.cancelAndRelease(bookingId);
 
-        if (booking == null) {
-            throw new Exception("订单不存在");
-        }
-
-        if (booking.getStatus() == 3) { // 3: 已取消
+        if (cancelled == null) {
+            // 仅在失败时读取订单，区分失败原因
+            if (bookingMapper.selectById(bookingId) == null) {
+                throw new Exception("订单不存在");
+            }
             throw new Exception("订单已取消");
         }
 
+        Booking booking = new Booking();
+        booking.setBookingId(bookingId);
+        booking.setTypeId(((Number) cancelled.get("type_id")).longValue());
+        booking.setSiteId(((Number) cancelled.get("site_id")).longValue());
+        booking.setCheckIn((String) cancelled.get("check_in"));
+        booking.setCheckOut((String) cancelled.get("check_out"));
         booking.setStatus(3); // 3: 已取消
-        booking.setUpdateTime(LocalDateTime.now());
+        occupancyIndex.release(booking);
+
+        List<Long> equipIds = new ArrayList<>();
+        String joinedEquipIds = (String) cancelled.get("equip_ids");
+        if (joinedEquipIds != null) {
+            for (String equipId : joinedEquipIds.split(",")) {
+                equipIds.add(Long.valueOf(equipId));
+            }
+        }
+        quoteCache.invalidateStay(booking.getTypeId(), booking.getCheckIn(), booking.getCheckOut(), equipIds);
+    }
+
+    /**
+     * 清理超时未支付订单
+     * 一条语句取消一批订单，再按订单集合一次扣减装备台账、一次删除装备关联；
+     * 待支付订单不计入收入汇总，无需调整 daily_revenue_rollup
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> expirePendingBookings(int limit) throws Exception {
+        List<Booking> expired = paymentHoldMinutes > 0 && limit > 0
+                ? bookingMapper.expirePending(LocalDateTime.now().minusMinutes(paymentHoldMinutes), limit)
+                : Collections.emptyList();
+
+        long siteNights = 0;
+        long equipmentUnits = 0;
+        long equipmentNights = 0;
+        if (!expired.isEmpty()) {
+            List<Long> bookingIds = new ArrayList<>();
+            Map<Long, Integer> nightsByBooking = new HashMap<>();
+            for (Booking booking : expired) {
+                int nights = calculateNights(booking.getCheckIn(), booking.getCheckOut());
+                bookingIds.add(booking.getBookingId());
+                nightsByBooking.put(booking.getBookingId(), nights);
+                siteNights += nights;
+                occupancyIndex.release(booking);
+            }
+
+            equipmentDailyUsageMapper.releaseByBookingIds(bookingIds);
+            Map<Long, List<Long>> equipIdsByBooking = new HashMap<>();
+            for (BookingEquip be : bookingEquipMapper.deleteByBookingIds(bookingIds)) {
+                equipmentUnits += be.getQuantity();
+                equipmentNights += (long) be.getQuantity() * nightsByBooking.get(be.getBookingId());
+                equipIdsByBooking.computeIfAbsent(be.getBookingId(), id -> new ArrayList<>()).add(be.getEquipId());
+            }
 
-        bookingMapper.update(booking);
+            quoteCache.invalidateStays(expired, equipIdsByBooking);
+        }
 
-        // 删除装备关联 (释放库存)
-        bookingEquipMapper.deleteByBookingId(bookingId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("expired", expired.size());
+        result.put("siteNights", siteNights);
+        result.put("equipmentUnits", equipmentUnits);
+        result.put("equipmentNights", equipmentNights);
+        return result;
+    }
+
+    /**
+     * 营位分配计数
+     */
+    @Override
+    public Map<String, Object> allocationStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allocation", allocationMode);
+        stats.put("allocations", allocations.get());
+        stats.put("overlapRetries", overlapRetries.get());
+        return stats;
     }
 
     /**
@@ -373,7 +685,7 @@ public class BookingServiceImpl implements BookingService {
         List<Object> result = new ArrayList<>();
 
         for (BookingEquip be : bookingEquips) {
-            Equipment equipment = equipmentMapper.selectById(be.getEquipId());
+            Equipment equipment = catalog.equipment(be.getEquipId());
             if (equipment != null) {
                 Map<String, Object> item = new LinkedHashMap<>();
                 item.put("equipId", be.getEquipId());
@@ -390,6 +702,83 @@ public class BookingServiceImpl implements BookingService {
 
     // ==================== 辅助方法 ====================
 
+    /**
+     * 乐观分配：直接插入，违反不重叠约束时回滚到保存点并换下一个候选营位，
+     * 最多尝试 insertAttempts 次；从随机位置开始轮询，避免并发请求都挤向同一营位
+     */
+    private Site insertOptimistically(Booking booking, List<Site> candidates) {
+        TransactionStatus tx = TransactionAspectSupport.currentTransactionStatus();
+        int attempts = Math.min(insertAttempts, candidates.size());
+        int offset = ThreadLocalRandom.current().nextInt(candidates.size());
+
+        for (int i = 0; i < attempts; i++) {
+            Site site = candidates.get((offset + i) % candidates.size());
+            booking.setSiteId(site.getSiteId());
+            Object savepoint = tx.createSavepoint();
+            try {
+                bookingMapper.insert(booking);
+                tx.releaseSavepoint(savepoint);
+                return site;
+            } catch (DataIntegrityViolationException e) {
+                if (!isOverlapViolation(e)) {
+                    throw e;
+                }
+                tx.rollbackToSavepoint(savepoint);
+                overlapRetries.incrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 悲观分配：先锁定空闲营位再插入
+     */
+    private Site insertWithLockedSite(Booking booking, List<Site> candidates) {
+        Site site = lockFreeSite(candidates, booking.getCheckIn(), booking.getCheckOut());
+        if (site != null) {
+            booking.setSiteId(site.getSiteId());
+            bookingMapper.insert(booking);
+        }
+        return site;
+    }
+
+    private boolean isOverlapViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException
+                    && SQLSTATE_EXCLUSION_VIOLATION.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从候选营位中锁定一个确实空闲的营位，没有时返回 null
+     * 已被其他事务锁住的营位直接跳过，锁定后在新快照下复查冲突，
+     * 因为锁的上一个持有者此时已提交，其预订对本次查询可见
+     */
+    private Site lockFreeSite(List<Site> candidates, String checkIn, String checkOut) {
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        List<Long> siteIds = new ArrayList<>();
+        for (Site site : candidates) {
+            siteIds.add(site.getSiteId());
+        }
+
+        while (!siteIds.isEmpty()) {
+            Site site = siteMapper.lockFirstUnlocked(siteIds);
+            if (site == null) {
+                return null;
+            }
+            if (bookingMapper.countSiteConflict(site.getSiteId(), checkIn, checkOut) == 0) {
+                return site;
+            }
+            siteIds.remove(site.getSiteId());
+        }
+        return null;
+    }
+
     /**
      * 计算入住天数
      */
@@ -1,21 +1,24 @@
 package com.camping.service.impl;
 
+import com.camping.cache.PriceCalendar;
+import com.camping.cache.ReferenceCatalog;
+import com.camping.cache.SingleFlight;
+import com.camping.cache.SiteOccupancyIndex;
 import com.camping.entity.SiteType;
-import com.camping.entity.Site;
 import com.camping.entity.Equipment;
-import com.camping.entity.DailyPrice;
-import com.camping.mapper.SiteTypeMapper;
-import com.camping.mapper.EquipmentMapper;
 import com.camping.mapper.SiteMapper;
 import com.camping.mapper.DailyPriceMapper;
 import com.camping.mapper.BookingMapper;
 import com.camping.mapper.BookingEquipMapper;
+import com.camping.mapper.EquipmentDailyUsageMapper;
 import com.camping.service.ResourceService;
+import com.camping.util.DateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 /**
@@ -24,11 +27,11 @@ import java.util.*;
 @Service
 public class ResourceServiceImpl implements ResourceService {
 
-    @Autowired
-    private SiteTypeMapper siteTypeMapper;
+    /** 灵活日期与最低价搜索允许的最大区间晚数 */
+    private static final int MAX_SEARCH_NIGHTS = 366;
 
-    @Autowired
-    private EquipmentMapper equipmentMapper;
+    /** 最低价搜索单次最多返回的入住日数 */
+    private static final int MAX_CHEAPEST_RESULTS = 100;
 
     @Autowired
     private SiteMapper siteMapper;
@@ -42,21 +45,34 @@ public class ResourceServiceImpl implements ResourceService {
     @Autowired
     private BookingEquipMapper bookingEquipMapper;
 
+    @Autowired
+    private EquipmentDailyUsageMapper equipmentDailyUsageMapper;
+
+    @Autowired
+    private SiteOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private ReferenceCatalog catalog;
+
+    @Autowired
+    private PriceCalendar priceCalendar;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
     /**
      * 获取所有房型列表
      */
     @Override
     public List<Object> getSiteTypes() throws Exception {
-        List<SiteType> types = siteTypeMapper.selectAll();
+        List<SiteType> types = catalog.siteTypes();
         List<Object> result = new ArrayList<>();
         String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
 
         for (SiteType t : types) {
-            List<Site> sites = siteMapper.selectByTypeId(t.getTypeId());
-            int totalSites = sites.size();
+            int totalSites = occupancyIndex.totalSites(t.getTypeId());
             // 查询今天可用营位数
-            List<Site> availableSites = siteMapper.selectAvailable(t.getTypeId(), today, today);
-            int available = availableSites != null ? availableSites.size() : totalSites;
+            int available = occupancyIndex.countAvailable(t.getTypeId(), today);
 
             Map<String, Object> item = new LinkedHashMap<>();
             item.put("typeId", t.getTypeId());
@@ -77,20 +93,22 @@ public class ResourceServiceImpl implements ResourceService {
      */
     @Override
     public List<Object> getSiteTypesToday() throws Exception {
-        List<SiteType> types = siteTypeMapper.selectAll();
-        List<Object> result = new ArrayList<>();
         String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
+        // 同一天的并发请求合并为一次计算
+        return singleFlight.execute("type-list-today:" + today, () -> loadSiteTypesToday(today));
+    }
+
+    private List<Object> loadSiteTypesToday(String today) {
+        List<SiteType> types = catalog.siteTypes();
+        List<Object> result = new ArrayList<>();
 
         for (SiteType t : types) {
             // 查询当日浮动价格
-            DailyPrice dp = dailyPriceMapper.selectByTypeAndDate(t.getTypeId(), today);
-            BigDecimal priceToday = (dp != null && dp.getPrice() != null) ? dp.getPrice() : t.getBasePrice();
+            BigDecimal priceToday = priceCalendar.nightlyPrice(t, today);
 
             // 查询营位总数和可用数
-            List<Site> sites = siteMapper.selectByTypeId(t.getTypeId());
-            int totalSites = sites.size();
-            List<Site> availableSites = siteMapper.selectAvailable(t.getTypeId(), today, today);
-            int available = availableSites != null ? availableSites.size() : totalSites;
+            int totalSites = occupancyIndex.totalSites(t.getTypeId());
+            int available = occupancyIndex.countAvailable(t.getTypeId(), today);
 
             Map<String, Object> item = new LinkedHashMap<>();
             item.put("typeId", t.getTypeId());
@@ -116,16 +134,14 @@ public class ResourceServiceImpl implements ResourceService {
             throw new Exception("房型ID不能为空");
         }
 
-        SiteType t = siteTypeMapper.selectById(typeId);
+        SiteType t = catalog.siteType(typeId);
         if (t == null) {
             throw new Exception("房型不存在");
         }
 
         String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-        List<Site> sites = siteMapper.selectByTypeId(typeId);
-        int totalSites = sites.size();
-        List<Site> availableSites = siteMapper.selectAvailable(typeId, today, today);
-        int available = availableSites != null ? availableSites.size() : totalSites;
+        int totalSites = occupancyIndex.totalSites(typeId);
+        int available = occupancyIndex.countAvailable(typeId, today);
 
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("typeId", t.getTypeId());
@@ -150,34 +166,40 @@ public class ResourceServiceImpl implements ResourceService {
             throw new Exception("参数不完整");
         }
 
-        Map<String, Object> calendar = new HashMap<>();
-
-        SiteType siteType = siteTypeMapper.selectById(typeId);
+        SiteType siteType = catalog.siteType(typeId);
         if (siteType == null) {
             throw new Exception("房型不存在");
         }
 
-        List<Site> allSites = siteMapper.selectByTypeId(typeId);
-        int totalSites = allSites.size();
-
-        // 查询日期范围内的浮动价格
-        List<DailyPrice> dailyPrices = dailyPriceMapper.selectByTypeAndDateRange(typeId, startDate, endDate);
-        Map<String, BigDecimal> priceMap = new HashMap<>();
-        for (DailyPrice dp : dailyPrices) {
-            priceMap.put(dp.getSpecificDate(), dp.getPrice());
+        // 以规范化后的参数合并相同的并发请求
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        if (end.isBefore(start) || !DateUtil.isValidStayLength((int) ChronoUnit.DAYS.between(start, end) + 1)) {
+            throw new Exception("日历区间须在 1 ~ " + DateUtil.MAX_STAY_NIGHTS + " 天之间");
         }
+        return singleFlight.execute("type-calendar:" + typeId + ":" + start + ":" + end,
+                () -> loadCalendar(siteType, start, end));
+    }
+
+    private Map<String, Object> loadCalendar(SiteType siteType, LocalDate start, LocalDate end) {
+        Long typeId = siteType.getTypeId();
+        Map<String, Object> calendar = new HashMap<>();
+        DateTimeFormatter fmt = DateTimeFormatter.ISO_DATE;
+        String startDate = start.format(fmt);
+        String endDate = end.format(fmt);
+
+        // 按晚读取价格日历与占用索引
+        BigDecimal[] prices = priceCalendar.nightlyPrices(siteType, startDate, end.plusDays(1).format(fmt));
+        int[] availableByNight = occupancyIndex.countAvailableByNight(typeId, startDate, endDate);
 
         // 遍历日期范围生成日历数据
         List<Map<String, Object>> calendarData = new ArrayList<>();
-        LocalDate start = LocalDate.parse(startDate);
-        LocalDate end = LocalDate.parse(endDate);
-        DateTimeFormatter fmt = DateTimeFormatter.ISO_DATE;
 
-        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+        int night = 0;
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1), night++) {
             String dateStr = date.format(fmt);
-            BigDecimal price = priceMap.getOrDefault(dateStr, siteType.getBasePrice());
-            List<Site> availableSites = siteMapper.selectAvailable(typeId, dateStr, dateStr);
-            int available = availableSites != null ? availableSites.size() : totalSites;
+            BigDecimal price = prices[night];
+            int available = availableByNight[night];
 
             Map<String, Object> dayData = new LinkedHashMap<>();
             dayData.put("date", dateStr);
@@ -200,14 +222,19 @@ public class ResourceServiceImpl implements ResourceService {
      */
     @Override
     public List<Object> getEquipments() throws Exception {
-        List<Equipment> equipments = equipmentMapper.selectAll();
+        List<Equipment> equipments = catalog.equipments();
         List<Object> result = new ArrayList<>();
         String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
 
+        // 一次取出所有装备当晚的占用数
+        Map<Long, Integer> reservedMap = new HashMap<>();
+        for (Map<String, Object> row : equipmentDailyUsageMapper.selectMaxReservedByEquip(today, today)) {
+            reservedMap.put(((Number) row.get("equip_id")).longValue(), ((Number) row.get("reserved")).intValue());
+        }
+
         for (Equipment e : equipments) {
             // 计算当日已预订数量
-            Integer usedCount = bookingEquipMapper.sumQuantityByEquipAndDate(e.getEquipId(), today, today);
-            int used = usedCount != null ? usedCount : 0;
+            int used = reservedMap.getOrDefault(e.getEquipId(), 0);
             int available = (e.getTotalStock() != null ? e.getTotalStock() : 0) - used;
 
             Map<String, Object> item = new LinkedHashMap<>();
@@ -240,13 +267,13 @@ public class ResourceServiceImpl implements ResourceService {
             throw new Exception("装备ID不能为空");
         }
 
-        Equipment e = equipmentMapper.selectById(equipId);
+        Equipment e = catalog.equipment(equipId);
         if (e == null) {
             throw new Exception("装备不存在");
         }
 
         String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-        Integer usedCount = bookingEquipMapper.sumQuantityByEquipAndDate(equipId, today, today);
+        Integer usedCount = equipmentDailyUsageMapper.selectMaxReserved(equipId, today, today);
         int used = usedCount != null ? usedCount : 0;
         int available = (e.getTotalStock() != null ? e.getTotalStock() : 0) - used;
 
@@ -261,4 +288,211 @@ public class ResourceServiceImpl implements ResourceService {
         result.put("status", e.getStatus());
         return result;
     }
+
+    /**
+     * 跨房型可用性搜索
+     * 房型来自内存目录，每晚空闲数由占用索引一次取出所有房型（窗口内各房型并行统计位图，
+     * 窗口外合并为一次查询），价格由价格日历一次取出，查询次数与房型数量无关
+     */
+    @Override
+    public List<Object> searchAvailability(String checkIn, String checkOut, Integer guests, BigDecimal maxPrice)
+            throws Exception {
+        if (checkIn == null || checkOut == null) {
+            throw new Exception("参数不完整");
+        }
+        if (!DateUtil.isValidDateRange(checkIn, checkOut)) {
+            throw new Exception("离店日期必须晚于入住日期");
+        }
+        if (DateUtil.calculateNights(checkIn, checkOut) > MAX_SEARCH_NIGHTS) {
+            throw new Exception("搜索区间须在 1 ~ " + MAX_SEARCH_NIGHTS + " 晚之间");
+        }
+
+        List<SiteType> types = new ArrayList<>();
+        List<Long> typeIds = new ArrayList<>();
+        for (SiteType t : catalog.siteTypes()) {
+            if (guests == null || t.getMaxGuests() == null || t.getMaxGuests() >= guests) {
+                types.add(t);
+                typeIds.add(t.getTypeId());
+            }
+        }
+        List<Object> result = new ArrayList<>();
+        if (types.isEmpty()) {
+            return result;
+        }
+
+        String lastNight = LocalDate.parse(checkOut).minusDays(1).format(DateTimeFormatter.ISO_DATE);
+        Map<Long, int[]> freeByType = occupancyIndex.countAvailableByNight(typeIds, checkIn, lastNight);
+        Map<Long, long[]> centsByType = priceCalendar.nightlyCents(types, checkIn, checkOut);
+        int nights = DateUtil.calculateNights(checkIn, checkOut);
+
+        for (SiteType t : types) {
+            long totalCents = 0;
+            for (long cents : centsByType.get(t.getTypeId())) {
+                totalCents += cents;
+            }
+            BigDecimal totalPrice = BigDecimal.valueOf(totalCents, 2);
+            if (maxPrice != null && totalPrice.compareTo(maxPrice) > 0) {
+                continue;
+            }
+
+            int totalSites = occupancyIndex.totalSites(t.getTypeId());
+            int minAvailable = totalSites;
+            for (int available : freeByType.get(t.getTypeId())) {
+                minAvailable = Math.min(minAvailable, available);
+            }
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("typeId", t.getTypeId());
+            item.put("typeName", t.getTypeName());
+            item.put("basePrice", t.getBasePrice());
+            item.put("maxGuests", t.getMaxGuests());
+            item.put("imageUrl", t.getImageUrl());
+            item.put("totalSites", totalSites);
+            item.put("minAvailable", minAvailable);
+            item.put("available", minAvailable > 0);
+            item.put("nights", nights);
+            item.put("totalPrice", totalPrice);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 灵活日期搜索
+     * 一次读取占用索引得到每个入住日连住 nights 晚都空闲的营位数，一次读取价格日历得到每晚价格，
+     * 再用长度为 nights 的滑动窗口一遍算出每个入住日的总价
+     */
+    @Override
+    public List<Object> searchFlexible(Long typeId, String startDate, String endDate, Integer nights)
+            throws Exception {
+        if (typeId == null || startDate == null || endDate == null || nights == null) {
+            throw new Exception("参数不完整");
+        }
+        if (nights <= 0) {
+            throw new Exception("入住晚数必须大于 0");
+        }
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        if (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) >= MAX_SEARCH_NIGHTS) {
+            throw new Exception("搜索区间须在 1 ~ " + MAX_SEARCH_NIGHTS + " 晚之间");
+        }
+
+        SiteType siteType = catalog.siteType(typeId);
+        if (siteType == null) {
+            throw new Exception("房型不存在");
+        }
+
+        List<Object> result = new ArrayList<>();
+        int[] freeSites = occupancyIndex.countFreeForStays(typeId, startDate, endDate, nights);
+        if (freeSites.length == 0) {
+            return result;
+        }
+        long[] cents = priceCalendar.nightlyCents(List.of(siteType), startDate,
+                end.plusDays(1).format(DateTimeFormatter.ISO_DATE)).get(typeId);
+
+        // 滑动窗口：windowCents 为 [i, i + nights) 的总价
+        long[] totals = new long[freeSites.length];
+        long windowCents = 0;
+        for (int n = 0; n < cents.length; n++) {
+            windowCents += cents[n];
+            if (n >= nights) {
+                windowCents -= cents[n - nights];
+            }
+            if (n >= nights - 1) {
+                totals[n - nights + 1] = windowCents;
+            }
+        }
+
+        List<Integer> feasible = new ArrayList<>();
+        for (int i = 0; i < freeSites.length; i++) {
+            if (freeSites[i] > 0) {
+                feasible.add(i);
+            }
+        }
+        // 稳定排序，总价相同时按入住日先后
+        feasible.sort(Comparator.comparingLong(i -> totals[i]));
+
+        for (int i : feasible) {
+            LocalDate checkIn = start.plusDays(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("checkIn", checkIn.format(DateTimeFormatter.ISO_DATE));
+            item.put("checkOut", checkIn.plusDays(nights).format(DateTimeFormatter.ISO_DATE));
+            item.put("nights", nights);
+            item.put("freeSites", freeSites[i]);
+            item.put("totalPrice", BigDecimal.valueOf(totals[i], 2));
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 最低价搜索
+     * 一次读取价格日历并构建前缀和，任一入住日的总价 O(1) 得出；
+     * 没有营位能连住 nights 晚的入住日被屏蔽，其余用大小为 k 的最大堆取总价最低的 k 个
+     */
+    @Override
+    public List<Object> searchCheapest(Long typeId, String startDate, String endDate, Integer nights, Integer k)
+            throws Exception {
+        if (typeId == null || startDate == null || endDate == null || nights == null) {
+            throw new Exception("参数不完整");
+        }
+        if (nights <= 0) {
+            throw new Exception("入住晚数必须大于 0");
+        }
+        int limit = k != null ? k : 5;
+        if (limit <= 0 || limit > MAX_CHEAPEST_RESULTS) {
+            throw new Exception("返回数量须在 1 ~ " + MAX_CHEAPEST_RESULTS + " 之间");
+        }
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        if (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) >= MAX_SEARCH_NIGHTS) {
+            throw new Exception("搜索区间须在 1 ~ " + MAX_SEARCH_NIGHTS + " 晚之间");
+        }
+
+        SiteType siteType = catalog.siteType(typeId);
+        if (siteType == null) {
+            throw new Exception("房型不存在");
+        }
+
+        List<Object> result = new ArrayList<>();
+        int[] freeSites = occupancyIndex.countFreeForStays(typeId, startDate, endDate, nights);
+        if (freeSites.length == 0) {
+            return result;
+        }
+        long[] cents = priceCalendar.nightlyCents(List.of(siteType), startDate,
+                end.plusDays(1).format(DateTimeFormatter.ISO_DATE)).get(typeId);
+        long[] prefix = new long[cents.length + 1];
+        for (int n = 0; n < cents.length; n++) {
+            prefix[n + 1] = prefix[n] + cents[n];
+        }
+
+        // 堆顶为当前 k 个中最贵（同价时最晚）的入住日
+        Comparator<Integer> cheaperFirst = Comparator.<Integer>comparingLong(i -> prefix[i + nights] - prefix[i])
+                .thenComparingInt(i -> i);
+        limit = Math.min(limit, freeSites.length);
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, cheaperFirst.reversed());
+        for (int i = 0; i < freeSites.length; i++) {
+            if (freeSites[i] == 0) {
+                continue;
+            }
+            top.offer(i);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Integer> cheapest = new ArrayList<>(top);
+        cheapest.sort(cheaperFirst);
+        for (int i : cheapest) {
+            LocalDate checkIn = start.plusDays(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("checkIn", checkIn.format(DateTimeFormatter.ISO_DATE));
+            item.put("checkOut", checkIn.plusDays(nights).format(DateTimeFormatter.ISO_DATE));
+            item.put("nights", nights);
+            item.put("freeSites", freeSites[i]);
+            item.put("totalPrice", BigDecimal.valueOf(prefix[i + nights] - prefix[i], 2));
+            result.add(item);
+        }
+        return result;
+    }
 }
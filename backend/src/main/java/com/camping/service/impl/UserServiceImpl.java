@@ -1,16 +1,17 @@
 package com.camping.service.impl;
 
+import com.camping.audit.AuditLogWriter;
+import com.camping.auth.LoginThrottle;
+import com.camping.auth.PasswordHasher;
 import com.camping.common.StringConstants;
 import com.camping.dto.UserInfoDTO;
 import com.camping.dto.UserLoginDTO;
 import com.camping.dto.UserRegisterDTO;
 import com.camping.entity.User;
 import com.camping.entity.OperationLog;
-import com.camping.mapper.OperationLogMapper;
 import com.camping.mapper.UserMapper;
 import com.camping.service.UserService;
 import com.camping.util.JwtUtil;
-import com.camping.util.PasswordUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -26,9 +27,13 @@ public class UserServiceImpl implements UserService {
      * 用户注册
      */
     @Autowired
-    OperationLogMapper operationLogMapper;
+    AuditLogWriter auditLogWriter;
     @Autowired
     UserMapper userMapper;
+    @Autowired
+    PasswordHasher passwordHasher;
+    @Autowired
+    LoginThrottle loginThrottle;
 
     @Override
     public void register(UserRegisterDTO dto) throws Exception {
@@ -47,7 +52,7 @@ public class UserServiceImpl implements UserService {
             throw new Exception(StringConstants.USER_USERNAME_DUPLICATE);
         }
         // 密码加密 (使用 BCryptPasswordEncoder)
-        String encryptedPassword = PasswordUtil.encryptPassword(dto.getPassword());
+        String encryptedPassword = passwordHasher.hash(dto.getPassword());
         // 创建新用户记录到数据库
         LocalDateTime currentDateTime = LocalDateTime.now();
         OperationLog operationLog = new OperationLog(
@@ -68,18 +73,20 @@ public class UserServiceImpl implements UserService {
         user.setUpdateTime(currentDateTime);
 
         // 插入数据库
-        operationLogMapper.insert(operationLog);
         userMapper.insert(user);
+        auditLogWriter.write(operationLog);
     }
 
     /**
      * 用户登录
      */
     @Override
-    public UserInfoDTO login(UserLoginDTO dto) throws Exception {
+    public UserInfoDTO login(UserLoginDTO dto, String clientIp) throws Exception {
         if (dto.getUsername() == null || dto.getPassword() == null) {
             throw new Exception(StringConstants.USER_USRN_PSWD_NULL);
         }
+        // 按用户名与 IP 限流，超限时抛出 TooManyRequestsException
+        loginThrottle.acquire(dto.getUsername(), clientIp);
 
         // 查询用户
         User currentUser = userMapper.selectByUsername(dto.getUsername());
@@ -87,9 +94,16 @@ public class UserServiceImpl implements UserService {
             throw new Exception(StringConstants.USER_NOT_EXIST);
         }
         // 验证密码
-        if (!PasswordUtil.verifyPassword(dto.getPassword(), currentUser.getPassword())) {
+        if (!passwordHasher.verify(dto.getPassword(), currentUser.getPassword())) {
             throw new Exception(StringConstants.USER_PASSWORD_ERR);
         }
+        // cost 与目标不同的旧哈希异步重新加密，不影响登录耗时；期间密码被修改则放弃
+        if (passwordHasher.needsRehash(currentUser.getPassword())) {
+            Long userId = currentUser.getUserId();
+            String oldHash = currentUser.getPassword();
+            passwordHasher.rehashAsync(dto.getPassword(),
+                    newHash -> userMapper.replacePassword(userId, oldHash, newHash));
+        }
         // 生成 JWT Token
         String token = JwtUtil.generateToken(currentUser.getUserId(), currentUser.getUsername(), currentUser.getRole());
 
@@ -137,11 +151,12 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public void updateUserInfo(UserInfoDTO userInfoDTO) throws Exception {
+        if (userInfoDTO.getUserId() == null) {
+            throw new Exception(StringConstants.USER_UID_NULL);
+        }
         User updateUser = userMapper.selectById(userInfoDTO.getUserId());
-        String userToken = userInfoDTO.getToken();
-
-        if (JwtUtil.isTokenExpired(userToken)) {
-            throw new Exception(StringConstants.USER_TOKEN_EXPIRED);
+        if (updateUser == null) {
+            throw new Exception(StringConstants.USER_NOT_EXIST);
         }
 
         updateUser.setUsername(userInfoDTO.getUsername());
@@ -171,11 +186,11 @@ public class UserServiceImpl implements UserService {
             throw new Exception(StringConstants.USER_NOT_EXIST);
         }
         // 验证旧密码
-        if (!PasswordUtil.verifyPassword(oldPassword, currentUser.getPassword())) {
+        if (!passwordHasher.verify(oldPassword, currentUser.getPassword())) {
             throw new Exception(StringConstants.USER_PASSWORD_ERR);
         }
         // 更新新密码
-        currentUser.setPassword(PasswordUtil.encryptPassword(newPassword));
+        currentUser.setPassword(passwordHasher.hash(newPassword));
         updateUserInfo(currentUser);
     }
 }
@@ -0,0 +1,107 @@
+package com.camping.task;
+
+import com.camping.service.BookingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 超时未支付订单清理
+ * 每隔 sweep-interval-ms 按 batch-size 分批取消超过 payment-hold-minutes 的待支付订单，
+ * 每批一个短事务；被下单或支付事务锁住的订单跳过，留到下一轮，不阻塞预订流程。
+ * 一轮最多执行 max-batches-per-run 批，记录每轮释放的营位晚数与装备数量。
+ */
+@Component
+public class BookingExpirySweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingExpirySweeper.class);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Value("${camping.booking.expiry.batch-size:200}")
+    private int batchSize;
+
+    @Value("${camping.booking.expiry.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong siteNights = new AtomicLong();
+    private final AtomicLong equipmentUnits = new AtomicLong();
+    private final AtomicLong equipmentNights = new AtomicLong();
+
+    private volatile Map<String, Object> lastRun;
+
+    @Scheduled(initialDelayString = "${camping.booking.expiry.sweep-interval-ms:60000}",
+            fixedDelayString = "${camping.booking.expiry.sweep-interval-ms:60000}")
+    public void sweep() {
+        long startedAt = System.currentTimeMillis();
+        int batches = 0;
+        long runExpired = 0;
+        long runSiteNights = 0;
+        long runEquipmentUnits = 0;
+        long runEquipmentNights = 0;
+        try {
+            while (batches < maxBatchesPerRun) {
+                Map<String, Object> batch = bookingService.expirePendingBookings(batchSize);
+                batches++;
+                int count = ((Number) batch.get("expired")).intValue();
+                runExpired += count;
+                runSiteNights += ((Number) batch.get("siteNights")).longValue();
+                runEquipmentUnits += ((Number) batch.get("equipmentUnits")).longValue();
+                runEquipmentNights += ((Number) batch.get("equipmentNights")).longValue();
+                if (count < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.warn("Pending booking sweep failed after {} batches: {}", batches, e.getMessage());
+        }
+
+        runs.incrementAndGet();
+        expired.addAndGet(runExpired);
+        siteNights.addAndGet(runSiteNights);
+        equipmentUnits.addAndGet(runEquipmentUnits);
+        equipmentNights.addAndGet(runEquipmentNights);
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("finishedAt", LocalDateTime.now().toString());
+        run.put("batches", batches);
+        run.put("expired", runExpired);
+        run.put("siteNights", runSiteNights);
+        run.put("equipmentUnits", runEquipmentUnits);
+        run.put("equipmentNights", runEquipmentNights);
+        run.put("elapsedMs", System.currentTimeMillis() - startedAt);
+        lastRun = run;
+
+        if (runExpired > 0) {
+            logger.info("Expired {} pending bookings in {} batches, reclaimed {} site-nights, {} equipment units ({} equipment-nights)",
+                    runExpired, batches, runSiteNights, runEquipmentUnits, runEquipmentNights);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batchSize", batchSize);
+        stats.put("maxBatchesPerRun", maxBatchesPerRun);
+        stats.put("runs", runs.get());
+        stats.put("failures", failures.get());
+        stats.put("expired", expired.get());
+        stats.put("siteNights", siteNights.get());
+        stats.put("equipmentUnits", equipmentUnits.get());
+        stats.put("equipmentNights", equipmentNights.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+}
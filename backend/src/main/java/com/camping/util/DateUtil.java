@@ -11,6 +11,11 @@ public class DateUtil {
 
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    /**
+     * 单次入住最多的晚数，校验后才读取价格日历、占用索引与装备台账
+     */
+    public static final int MAX_STAY_NIGHTS = 366;
+
     /**
      * 解析日期字符串
      */
@@ -54,4 +59,11 @@ public class DateUtil {
             return false;
         }
     }
+
+    /**
+     * 检查入住晚数是否在 1 ~ MAX_STAY_NIGHTS 之间
+     */
+    public static boolean isValidStayLength(int nights) {
+        return nights > 0 && nights <= MAX_STAY_NIGHTS;
+    }
 }
@@ -1,12 +1,13 @@
 package com.camping.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import java.util.Date;
 import io.jsonwebtoken.security.Keys;
 import java.nio.charset.StandardCharsets;
-import java.security.Key;
+import javax.crypto.SecretKey;
 
 /**
  * JWT Token 工具类
@@ -16,6 +17,10 @@ public class JwtUtil {
     private static final String SECRET_KEY = "camping_system_secret_key_2024_make_this_string_very_long_to_satisfy_hs512_security_requirements";
     private static final long EXPIRATION = 24 * 60 * 60 * 1000; // 24 小时
 
+    /** 签名密钥与解析器只构建一次，二者均不可变、线程安全 */
+    private static final SecretKey KEY = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    private static final JwtParser PARSER = Jwts.parser().verifyWith(KEY).build();
+
     /**
      * 生成 Token
      */
@@ -24,15 +29,13 @@ public class JwtUtil {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + EXPIRATION);
 
-        Key key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
-
         return Jwts.builder()
                 .claim("userId", userId)
                 .claim("username", username)
                 .claim("role", role)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS512)
+                .signWith(KEY, SignatureAlgorithm.HS512)
                 .compact();
     }
 
@@ -41,12 +44,7 @@ public class JwtUtil {
      */
     public static Claims parseToken(String token) {
         try {
-            byte[] keyBytes = SECRET_KEY.getBytes(StandardCharsets.UTF_8);
-            javax.crypto.SecretKey key = Keys.hmacShaKeyFor(keyBytes);
-
-            return Jwts.parser()
-                    .verifyWith(key)        // 0.12.x 使用 verifyWith 替代 setSigningKey
-                    .build()
+            return PARSER
                     .parseSignedClaims(token) // 0.12.x 使用 parseSignedClaims 替代 parseClaimsJws
                     .getPayload();            // 0.12.x 使用 getPayload 替代 getBody
         } catch (Exception e) {
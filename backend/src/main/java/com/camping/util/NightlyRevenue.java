@@ -0,0 +1,63 @@
+package com.camping.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按晚统计已支付预订的入住数与收入
+ * 由 daily_revenue_rollup 的按晚汇总结果填充 [startDate, endDate]（含两端）内的每一晚，
+ * 汇总中没有的夜晚记为 0
+ */
+public final class NightlyRevenue {
+
+    private final LocalDate startDate;
+    private final int[] bookingCounts;
+    private final long[] revenueCents;
+
+    private NightlyRevenue(LocalDate startDate, int[] bookingCounts, long[] revenueCents) {
+        this.startDate = startDate;
+        this.bookingCounts = bookingCounts;
+        this.revenueCents = revenueCents;
+    }
+
+    /**
+     * rows 为 DailyRevenueRollupMapper.selectNightly 的结果（night、paid_count、revenue_cents）
+     */
+    public static NightlyRevenue of(List<Map<String, Object>> rows, LocalDate startDate, LocalDate endDate) {
+        long first = startDate.toEpochDay();
+        int days = (int) Math.max(endDate.toEpochDay() - first + 1, 0);
+        int[] counts = new int[days];
+        long[] cents = new long[days];
+
+        for (Map<String, Object> row : rows) {
+            int night = (int) (LocalDate.parse((String) row.get("night")).toEpochDay() - first);
+            if (night < 0 || night >= days) {
+                continue;
+            }
+            counts[night] = ((Number) row.get("paid_count")).intValue();
+            cents[night] = ((Number) row.get("revenue_cents")).longValue();
+        }
+        return new NightlyRevenue(startDate, counts, cents);
+    }
+
+    public int days() {
+        return bookingCounts.length;
+    }
+
+    public LocalDate date(int night) {
+        return startDate.plusDays(night);
+    }
+
+    public int bookingCount(int night) {
+        return bookingCounts[night];
+    }
+
+    /**
+     * 当晚收入，无入住时为 BigDecimal.ZERO，与逐个累加的结果保持一致
+     */
+    public BigDecimal revenue(int night) {
+        return bookingCounts[night] == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(revenueCents[night], 2);
+    }
+}
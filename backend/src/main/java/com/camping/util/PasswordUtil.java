@@ -1,6 +1,5 @@
 package com.camping.util;
 
-import java.util.UUID;
 import org.mindrot.jbcrypt.BCrypt;
 
 /**
@@ -9,27 +8,38 @@ import org.mindrot.jbcrypt.BCrypt;
 public class PasswordUtil {
 
     /**
-     * 加密密码
+     * 以指定的 cost（log2 轮数，4 ~ 31）加密密码
      */
-    public static String encryptPassword(String password) {
+    public static String encryptPassword(String password, int cost) {
         try {
-            return BCrypt.hashpw(password, BCrypt.gensalt());
+            return BCrypt.hashpw(password, BCrypt.gensalt(cost));
         } catch (Exception e) {
             throw new RuntimeException("密码加密失败", e);
         }
     }
 
     /**
-     * 验证密码
+     * 读取 BCrypt 哈希（$2a$10$...）中的 cost，格式不符时返回 -1
      */
-    public static boolean verifyPassword(String password, String encryptedPassword) {
-        if (BCrypt.checkpw(password, encryptedPassword)) {
-            System.out.println("登录成功");
-            return true;
+    public static int costOf(String encryptedPassword) {
+        if (encryptedPassword == null || encryptedPassword.length() < 7 || encryptedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int end = encryptedPassword.indexOf('$', 1);
+        if (end < 0 || end + 3 >= encryptedPassword.length() || encryptedPassword.charAt(end + 3) != '$') {
+            return -1;
         }
-        else {
-            System.out.println("密码错误");
-            return false;
+        try {
+            return Integer.parseInt(encryptedPassword.substring(end + 1, end + 3));
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
+
+    /**
+     * 验证密码（CPU 密集，业务代码应通过 PasswordHasher 在专用线程池中调用）
+     */
+    public static boolean verifyPassword(String password, String encryptedPassword) {
+        return BCrypt.checkpw(password, encryptedPassword);
+    }
 }
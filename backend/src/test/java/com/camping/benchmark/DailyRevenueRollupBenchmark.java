@@ -0,0 +1,112 @@
+package com.camping.benchmark;
+
+import com.camping.entity.Booking;
+import com.camping.mapper.BookingMapper;
+import com.camping.service.AdminService;
+import com.camping.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * /admin/report/daily 在 100 万条已支付预订下的耗时：
+ * 旧实现（selectAll 后对每一天重扫全部预订）对比当前实现（读取 daily_revenue_rollup）。
+ * 不随 mvn test 运行，需显式执行：mvn test -Dtest=DailyRevenueRollupBenchmark
+ */
+class DailyRevenueRollupBenchmark extends IntegrationTest {
+
+    private static final int SITES = 2000;
+    private static final int STAYS_PER_SITE = 500;
+    private static final int REPORT_DAYS = 30;
+    private static final int RUNS = 5;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private BookingMapper bookingMapper;
+
+    @Test
+    void dailyReportAtOneMillionBookings() throws Exception {
+        Long userId = data.createUser();
+        Long typeId = data.createType(SITES, new BigDecimal("100.00"));
+        LocalDate first = LocalDate.now().plusYears(5);
+
+        // 每个营位连续 500 段互不重叠的 2 晚入住，总价带分位以覆盖四舍五入
+        jdbcTemplate.update("INSERT INTO bookings (user_id, site_id, type_id, check_in, check_out, guest_name, "
+                + "guest_phone, total_price, status, create_time, update_time) "
+                + "SELECT ?, s.site_id, s.type_id, CAST(? AS DATE) + 2 * k, CAST(? AS DATE) + 2 * k + 2, "
+                + "'bench', '10000000000', 99.99 + (k % 5), 2, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM sites s CROSS JOIN generate_series(0, ?) AS k WHERE s.type_id = ?",
+                userId, first.toString(), first.toString(), STAYS_PER_SITE - 1, typeId);
+        adminService.rebuildRevenueRollup();
+
+        String startDate = first.plusDays(100).toString();
+        String endDate = first.plusDays(100 + REPORT_DAYS - 1).toString();
+
+        long legacyStarted = System.nanoTime();
+        List<Object[]> legacy = legacyDailyReport(startDate, endDate);
+        long legacyNanos = System.nanoTime() - legacyStarted;
+
+        long rollupNanos = Long.MAX_VALUE;
+        Map<String, Object> report = null;
+        for (int run = 0; run < RUNS; run++) {
+            long started = System.nanoTime();
+            report = adminService.getDailyReport(startDate, endDate);
+            rollupNanos = Math.min(rollupNanos, System.nanoTime() - started);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> dailyData = (List<Map<String, Object>>) report.get("dailyData");
+        assertEquals(legacy.size(), dailyData.size());
+        for (int i = 0; i < legacy.size(); i++) {
+            assertEquals(legacy.get(i)[0], dailyData.get(i).get("bookingCount"));
+            assertEquals(0, ((BigDecimal) legacy.get(i)[1]).compareTo((BigDecimal) dailyData.get(i).get("revenue")));
+        }
+
+        System.out.printf("daily report, %d paid bookings, %d days: legacy rescan %d ms, rollup %.2f ms (%.0fx)%n",
+                SITES * STAYS_PER_SITE, REPORT_DAYS, legacyNanos / 1_000_000, rollupNanos / 1e6,
+                (double) legacyNanos / rollupNanos);
+        assertTrue(rollupNanos < legacyNanos);
+    }
+
+    /**
+     * 旧实现：读取全部预订，对每一天重扫全部预订并逐个解析日期、做 BigDecimal 除法
+     */
+    private List<Object[]> legacyDailyReport(String startDate, String endDate) {
+        List<Booking> allBookings = bookingMapper.selectAll();
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+
+        List<Object[]> days = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            int bookingCount = 0;
+            BigDecimal revenue = BigDecimal.ZERO;
+            for (Booking booking : allBookings) {
+                if (booking.getStatus() == 2) {
+                    LocalDate checkIn = LocalDate.parse(booking.getCheckIn());
+                    LocalDate checkOut = LocalDate.parse(booking.getCheckOut());
+                    if (!date.isBefore(checkIn) && date.isBefore(checkOut)) {
+                        bookingCount++;
+                        int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
+                        if (nights > 0) {
+                            revenue = revenue.add(booking.getTotalPrice().divide(BigDecimal.valueOf(nights), 2,
+                                    RoundingMode.HALF_UP));
+                        }
+                    }
+                }
+            }
+            days.add(new Object[] { bookingCount, revenue });
+        }
+        return days;
+    }
+}
@@ -0,0 +1,97 @@
+package com.camping.benchmark;
+
+import com.camping.auth.JwtAuthFilter;
+import com.camping.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 每秒可验证的 Token 数：JwtAuthFilter 缓存命中路径对比每次 JwtUtil.parseToken（验签 + JSON 解析）。
+ * 不随 mvn test 运行，需显式执行：mvn test -Dtest=JwtVerifyBenchmark
+ */
+class JwtVerifyBenchmark {
+
+    private static final int TOKENS = 64;
+    private static final long WARMUP_MS = 1000;
+    private static final long MEASURE_MS = 3000;
+
+    @Test
+    void tokensVerifiedPerSecond() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < TOKENS; i++) {
+            tokens.add(JwtUtil.generateToken((long) i + 1, "user" + i, "user"));
+        }
+
+        JwtAuthFilter filter = new JwtAuthFilter();
+        ReflectionTestUtils.setField(filter, "cacheSize", 1024);
+        filter.init();
+        for (String token : tokens) {
+            assertNotNull(filter.authenticate(token));
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        double coldSingle = opsPerSecond(tokens, 1, JwtUtil::parseToken);
+        double cachedSingle = opsPerSecond(tokens, 1, filter::authenticate);
+        double coldParallel = opsPerSecond(tokens, threads, JwtUtil::parseToken);
+        double cachedParallel = opsPerSecond(tokens, threads, filter::authenticate);
+
+        System.out.printf("JWT verify, 1 thread: parseToken %.0f/s, cached filter %.0f/s (%.1fx)%n",
+                coldSingle, cachedSingle, cachedSingle / coldSingle);
+        System.out.printf("JWT verify, %d threads: parseToken %.0f/s, cached filter %.0f/s (%.1fx)%n",
+                threads, coldParallel, cachedParallel, cachedParallel / coldParallel);
+        System.out.println("filter stats: " + filter.stats());
+        assertTrue(cachedSingle > coldSingle);
+    }
+
+    /**
+     * 先预热 WARMUP_MS，再由 threads 个线程轮流验证 tokens 持续 MEASURE_MS，返回合计每秒次数
+     */
+    private static double opsPerSecond(List<String> tokens, int threads, Function<String, ?> verify)
+            throws Exception {
+        run(tokens, 1, WARMUP_MS, verify);
+        long ops = run(tokens, threads, MEASURE_MS, verify);
+        return ops * 1000.0 / MEASURE_MS;
+    }
+
+    private static long run(List<String> tokens, int threads, long durationMs, Function<String, ?> verify)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(pool.submit(() -> {
+                    long ops = 0;
+                    int i = offset;
+                    while (System.nanoTime() < deadline) {
+                        Object result = verify.apply(tokens.get(i++ % tokens.size()));
+                        if (result == null) {
+                            throw new IllegalStateException("token rejected");
+                        }
+                        ops++;
+                    }
+                    return ops;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.camping.controller;
+
+import com.camping.service.AdminService;
+import com.camping.support.IntegrationTest;
+import com.camping.support.SqlStatementCounter;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /admin/sites 与房型统计各只发出一条 SQL，不随房型数、营位数增长（防止 N+1 回归）
+ */
+@AutoConfigureMockMvc
+class AdminSiteQueryCountTest extends IntegrationTest {
+
+    private static SqlStatementCounter counter;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        synchronized (AdminSiteQueryCountTest.class) {
+            if (counter == null) {
+                counter = SqlStatementCounter.install(sqlSessionFactory);
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            data.createType(4, new BigDecimal("100.00"));
+        }
+    }
+
+    @Test
+    void allSitesIsOneStatement() throws Exception {
+        counter.start();
+        mockMvc.perform(get("/admin/sites"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(1));
+        assertEquals(1, counter.stop());
+    }
+
+    @Test
+    void sitesOfOneTypeIsOneStatement() throws Exception {
+        Long typeId = data.createType(4, new BigDecimal("100.00"));
+        counter.start();
+        mockMvc.perform(get("/admin/sites").param("typeId", typeId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(4));
+        assertEquals(1, counter.stop());
+    }
+
+    @Test
+    void typeStatsIsOneStatement() throws Exception {
+        counter.start();
+        mockMvc.perform(get("/admin/stats/type"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(1));
+        assertEquals(1, counter.stop());
+
+        counter.start();
+        adminService.getTypeStats();
+        assertEquals(1, counter.stop());
+    }
+}
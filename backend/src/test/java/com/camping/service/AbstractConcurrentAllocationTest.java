@@ -0,0 +1,83 @@
+package com.camping.service;
+
+import com.camping.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.camping.support.TestData.order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多线程同时预订同一房型同一日期：营位不得重叠，每个营位最多成功一单。
+ * 子类通过 camping.booking.allocation 选择分配方式
+ */
+abstract class AbstractConcurrentAllocationTest extends IntegrationTest {
+
+    private static final int SITES = 8;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Test
+    void concurrentOrdersForOneTypeNeverOverlap() throws Exception {
+        Long userId = data.createUser();
+        Long typeId = data.createType(SITES, new BigDecimal("100.00"));
+        LocalDate checkIn = LocalDate.now().plusDays(60);
+        String in = checkIn.toString();
+        String out = checkIn.plusDays(2).toString();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                Callable<Long> task = () -> {
+                    start.await();
+                    try {
+                        Map<String, Object> result = bookingService.createOrder(order(userId, typeId, in, out));
+                        return ((Number) result.get("bookingId")).longValue();
+                    } catch (Exception e) {
+                        return null;
+                    }
+                };
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+
+            List<Long> bookingIds = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                Long bookingId = future.get(60, TimeUnit.SECONDS);
+                if (bookingId != null) {
+                    bookingIds.add(bookingId);
+                }
+            }
+
+            Set<Long> sites = new HashSet<>();
+            for (Long bookingId : bookingIds) {
+                sites.add(data.siteOf(bookingId));
+            }
+            assertTrue(!bookingIds.isEmpty(), "expected at least one successful order");
+            assertTrue(bookingIds.size() <= SITES, "more orders than sites: " + bookingIds.size());
+            assertEquals(bookingIds.size(), sites.size(), "two orders share a site");
+            assertEquals(0, data.countOverlaps(typeId));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
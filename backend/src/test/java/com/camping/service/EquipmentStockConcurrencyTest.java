@@ -0,0 +1,80 @@
+package com.camping.service;
+
+import com.camping.dto.BookingCreateDTO;
+import com.camping.dto.EquipSelectDTO;
+import com.camping.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.camping.support.TestData.order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多线程同时租用同一装备：任何一晚的租出数量都不得超过 total_stock。
+ * 营位充足，只有装备库存是瓶颈；入住日错开，同时覆盖台账的新增与累加两条路径
+ */
+class EquipmentStockConcurrencyTest extends IntegrationTest {
+
+    private static final int STOCK = 5;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Test
+    void concurrentOrdersNeverOversellEquipment() throws Exception {
+        Long userId = data.createUser();
+        Long typeId = data.createType(THREADS, new BigDecimal("100.00"));
+        Long equipId = data.createEquipment(STOCK, new BigDecimal("10.00"));
+        LocalDate first = LocalDate.now().plusDays(90);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                LocalDate checkIn = first.plusDays(i % 3);
+                BookingCreateDTO dto = order(userId, typeId, checkIn.toString(), checkIn.plusDays(2).toString());
+                dto.setEquipments(Collections.singletonList(new EquipSelectDTO(equipId, 1)));
+                Callable<Boolean> task = () -> {
+                    start.await();
+                    try {
+                        bookingService.createOrder(dto);
+                        return true;
+                    } catch (Exception e) {
+                        return false;
+                    }
+                };
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get(60, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+
+            assertTrue(succeeded > 0, "expected at least one successful order");
+            int maxRented = data.maxEquipmentPerNight(equipId);
+            assertTrue(maxRented <= STOCK, "equipment oversold: " + maxRented + " > " + STOCK);
+            assertEquals(maxRented, data.maxReserved(equipId), "usage ledger out of step with bookings");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
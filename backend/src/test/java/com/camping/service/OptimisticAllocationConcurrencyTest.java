@@ -0,0 +1,10 @@
+package com.camping.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "camping.booking.allocation=optimistic",
+        "camping.booking.insert-attempts=8"
+})
+class OptimisticAllocationConcurrencyTest extends AbstractConcurrentAllocationTest {
+}
@@ -0,0 +1,61 @@
+package com.camping.service;
+
+import com.camping.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static com.camping.support.TestData.order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 乐观分配营位：插入违反不重叠约束时回滚到保存点并换下一个营位
+ */
+@SpringBootTest(properties = {
+        "camping.booking.allocation=optimistic",
+        "camping.booking.insert-attempts=5"
+})
+class OptimisticAllocationTest extends IntegrationTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Test
+    void retriesOnOverlapAndBooksTheFreeSite() throws Exception {
+        Long userId = data.createUser();
+        Long typeId = data.createType(2, new BigDecimal("100.00"));
+        List<Long> siteIds = data.siteIds(typeId);
+
+        // 起始营位随机，重复到出现一次冲突重试为止（每轮先试到被占营位的概率 1/2）
+        boolean retried = false;
+        for (int round = 0; round < 20 && !retried; round++) {
+            LocalDate checkIn = LocalDate.now().plusDays(30 + round * 3L);
+            String in = checkIn.toString();
+            String out = checkIn.plusDays(2).toString();
+
+            // 先让索引加载该房型，再绕过索引占用第一个营位：索引仍认为两个营位都空闲
+            assertEquals(2, occupancyIndex.findAvailable(typeId, in, out).size());
+            data.insertBooking(userId, typeId, siteIds.get(0), in, out, 1);
+
+            long retriesBefore = overlapRetries();
+            Map<String, Object> result = bookingService.createOrder(order(userId, typeId, in, out));
+            Long bookingId = ((Number) result.get("bookingId")).longValue();
+
+            assertEquals(siteIds.get(1), data.siteOf(bookingId));
+            retried = overlapRetries() > retriesBefore;
+        }
+
+        assertTrue(retried, "expected at least one overlap retry");
+        assertEquals(0, data.countOverlaps(typeId));
+    }
+
+    private long overlapRetries() {
+        return ((Number) bookingService.allocationStats().get("overlapRetries")).longValue();
+    }
+}
@@ -0,0 +1,7 @@
+package com.camping.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "camping.booking.allocation=skip-locked")
+class SkipLockedAllocationConcurrencyTest extends AbstractConcurrentAllocationTest {
+}
@@ -0,0 +1,44 @@
+package com.camping.support;
+
+import com.camping.cache.ReferenceCatalog;
+import com.camping.cache.SiteOccupancyIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 集成测试基类：使用 test 配置连接独立的测试库，每个测试前创建 TestData，结束后清理。
+ * 连接的库名不以 _test 结尾时直接失败，避免误写开发库或生产库
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public abstract class IntegrationTest {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected ReferenceCatalog catalog;
+
+    @Autowired
+    protected SiteOccupancyIndex occupancyIndex;
+
+    protected TestData data;
+
+    @BeforeEach
+    void createTestData() {
+        String database = jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+        if (database == null || !database.endsWith("_test")) {
+            throw new IllegalStateException("Integration tests must run against a *_test database, got: " + database);
+        }
+        data = new TestData(jdbcTemplate, catalog, occupancyIndex);
+    }
+
+    @AfterEach
+    void cleanUpTestData() {
+        data.cleanup();
+    }
+}
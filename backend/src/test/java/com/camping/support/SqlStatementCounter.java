@@ -0,0 +1,49 @@
+package com.camping.support;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MyBatis 插件：统计当前线程在 start() 与 stop() 之间预编译的 SQL 语句数，
+ * 定时任务等其他线程的语句不计入
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+public class SqlStatementCounter implements Interceptor {
+
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile Thread recording;
+
+    /**
+     * 注册到 SqlSessionFactory，之后打开的会话生效
+     */
+    public static SqlStatementCounter install(SqlSessionFactory sqlSessionFactory) {
+        SqlStatementCounter counter = new SqlStatementCounter();
+        sqlSessionFactory.getConfiguration().addInterceptor(counter);
+        return counter;
+    }
+
+    public void start() {
+        count.set(0);
+        recording = Thread.currentThread();
+    }
+
+    public int stop() {
+        recording = null;
+        return count.get();
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (recording == Thread.currentThread()) {
+            count.incrementAndGet();
+        }
+        return invocation.proceed();
+    }
+}
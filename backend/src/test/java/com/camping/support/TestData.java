@@ -0,0 +1,164 @@
+package com.camping.support;
+
+import com.camping.cache.ReferenceCatalog;
+import com.camping.cache.SiteOccupancyIndex;
+import com.camping.dto.BookingCreateDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 集成测试数据：直接用 JDBC 创建用户、房型、营位和预订，测试结束时按创建的 ID 清理。
+ * 新建的房型只存在于本测试，不与种子数据或其他测试的日期冲突。
+ */
+public class TestData {
+
+    private final JdbcTemplate jdbc;
+    private final ReferenceCatalog catalog;
+    private final SiteOccupancyIndex occupancyIndex;
+
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> typeIds = new ArrayList<>();
+    private final List<Long> equipIds = new ArrayList<>();
+
+    public TestData(JdbcTemplate jdbc, ReferenceCatalog catalog, SiteOccupancyIndex occupancyIndex) {
+        this.jdbc = jdbc;
+        this.catalog = catalog;
+        this.occupancyIndex = occupancyIndex;
+    }
+
+    public Long createUser() {
+        Long userId = jdbc.queryForObject(
+                "INSERT INTO users (username, password, role) VALUES (?, ?, 'user') RETURNING user_id",
+                Long.class, "test-" + UUID.randomUUID(), "-");
+        userIds.add(userId);
+        return userId;
+    }
+
+    /**
+     * 创建房型及 siteCount 个可用营位，并刷新目录缓存
+     */
+    public Long createType(int siteCount, BigDecimal basePrice) {
+        Long typeId = jdbc.queryForObject(
+                "INSERT INTO site_types (type_name, base_price, max_guests, status) VALUES (?, ?, 4, 1) RETURNING type_id",
+                Long.class, "test-" + UUID.randomUUID(), basePrice);
+        typeIds.add(typeId);
+        for (int i = 1; i <= siteCount; i++) {
+            jdbc.update("INSERT INTO sites (type_id, site_no, status) VALUES (?, ?, 1)", typeId, "T" + i);
+        }
+        catalog.refresh();
+        return typeId;
+    }
+
+    /**
+     * 创建库存为 totalStock 的可用装备，并刷新目录缓存
+     */
+    public Long createEquipment(int totalStock, BigDecimal unitPrice) {
+        Long equipId = jdbc.queryForObject(
+                "INSERT INTO equipments (equip_name, unit_price, total_stock, status) VALUES (?, ?, ?, 1) RETURNING equip_id",
+                Long.class, "test-" + UUID.randomUUID(), unitPrice, totalStock);
+        equipIds.add(equipId);
+        catalog.refresh();
+        return equipId;
+    }
+
+    public List<Long> siteIds(Long typeId) {
+        return jdbc.queryForList("SELECT site_id FROM sites WHERE type_id = ? ORDER BY site_no", Long.class, typeId);
+    }
+
+    /**
+     * 绕过业务层直接插入预订，不更新占用索引
+     */
+    public Long insertBooking(Long userId, Long typeId, Long siteId, String checkIn, String checkOut, int status) {
+        return jdbc.queryForObject(
+                "INSERT INTO bookings (user_id, site_id, type_id, check_in, check_out, guest_name, guest_phone, "
+                        + "total_price, status, create_time, update_time) "
+                        + "VALUES (?, ?, ?, CAST(? AS DATE), CAST(? AS DATE), 'test', '10000000000', 100, ?, "
+                        + "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) RETURNING booking_id",
+                Long.class, userId, siteId, typeId, checkIn, checkOut, status);
+    }
+
+    /**
+     * 不带装备的下单参数
+     */
+    public static BookingCreateDTO order(Long userId, Long typeId, String checkIn, String checkOut) {
+        BookingCreateDTO dto = new BookingCreateDTO();
+        dto.setUserId(userId);
+        dto.setTypeId(typeId);
+        dto.setCheckIn(checkIn);
+        dto.setCheckOut(checkOut);
+        dto.setGuestName("test");
+        dto.setGuestPhone("10000000000");
+        return dto;
+    }
+
+    public Long siteOf(Long bookingId) {
+        return jdbc.queryForObject("SELECT site_id FROM bookings WHERE booking_id = ?", Long.class, bookingId);
+    }
+
+    /**
+     * 同一营位上入住区间重叠的有效预订对数
+     */
+    public int countOverlaps(Long typeId) {
+        Integer overlaps = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM bookings a JOIN bookings b "
+                        + "ON a.site_id = b.site_id AND a.booking_id < b.booking_id "
+                        + "AND a.check_in < b.check_out AND b.check_in < a.check_out "
+                        + "WHERE a.type_id = ? AND a.status IN (1, 2) AND b.status IN (1, 2)",
+                Integer.class, typeId);
+        return overlaps != null ? overlaps : 0;
+    }
+
+    /**
+     * 按有效预订（而非占用台账）计算装备单晚的最大租出数量
+     */
+    public int maxEquipmentPerNight(Long equipId) {
+        Integer max = jdbc.queryForObject(
+                "SELECT COALESCE(MAX(used), 0) FROM ("
+                        + "SELECT n.night, SUM(be.quantity) AS used FROM booking_equips be "
+                        + "JOIN bookings b ON be.booking_id = b.booking_id "
+                        + "CROSS JOIN LATERAL generate_series(b.check_in, b.check_out - 1, INTERVAL '1 day') AS n(night) "
+                        + "WHERE be.equip_id = ? AND b.status IN (1, 2) GROUP BY n.night) t",
+                Integer.class, equipId);
+        return max != null ? max : 0;
+    }
+
+    /**
+     * 占用台账中装备单晚的最大占用数
+     */
+    public int maxReserved(Long equipId) {
+        Integer max = jdbc.queryForObject(
+                "SELECT COALESCE(MAX(reserved), 0) FROM equipment_daily_usage WHERE equip_id = ?",
+                Integer.class, equipId);
+        return max != null ? max : 0;
+    }
+
+    public void cleanup() {
+        for (Long equipId : equipIds) {
+            jdbc.update("DELETE FROM booking_equips WHERE equip_id = ?", equipId);
+            jdbc.update("DELETE FROM equipment_daily_usage WHERE equip_id = ?", equipId);
+            jdbc.update("DELETE FROM equipments WHERE equip_id = ?", equipId);
+        }
+        for (Long typeId : typeIds) {
+            jdbc.update("DELETE FROM booking_equips WHERE booking_id IN (SELECT booking_id FROM bookings WHERE type_id = ?)",
+                    typeId);
+            jdbc.update("DELETE FROM bookings WHERE type_id = ?", typeId);
+            jdbc.update("DELETE FROM daily_revenue_rollup WHERE type_id = ?", typeId);
+            jdbc.update("DELETE FROM daily_prices WHERE type_id = ?", typeId);
+            jdbc.update("DELETE FROM sites WHERE type_id = ?", typeId);
+            jdbc.update("DELETE FROM site_types WHERE type_id = ?", typeId);
+            occupancyIndex.invalidateType(typeId);
+        }
+        for (Long userId : userIds) {
+            jdbc.update("DELETE FROM bookings WHERE user_id = ?", userId);
+            jdbc.update("DELETE FROM users WHERE user_id = ?", userId);
+        }
+        equipIds.clear();
+        typeIds.clear();
+        userIds.clear();
+        catalog.refresh();
+    }
+}
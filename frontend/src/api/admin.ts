@@ -191,13 +191,16 @@ export const adminApi = {
 
   /**
    * 获取操作日志
-   * @param page 页码
+   * @param pageToken 上一页返回的 nextPageToken (首页不传)
    * @param pageSize 每页数量
    * @param operation 操作类型 (可选)
-   * @returns 操作日志列表
+   * @returns 操作日志列表与 nextPageToken
    */
-  getOperationLogs: (page: number = 1, pageSize: number = 20, operation?: string) => {
-    const params: any = { page, pageSize }
+  getOperationLogs: (pageToken?: string, pageSize: number = 20, operation?: string) => {
+    const params: any = { pageSize }
+    if (pageToken) {
+      params.pageToken = pageToken
+    }
     if (operation) {
       params.operation = operation
     }
@@ -277,15 +280,18 @@ export const adminApi = {
   /**
    * 查询用户行为记录
    * @param userId 用户ID (可选)
-   * @param page 页码
+   * @param pageToken 上一页返回的 nextPageToken (首页不传)
    * @param pageSize 每页数量
-   * @returns 用户操作记录
+   * @returns 用户操作记录与 nextPageToken
    */
-  getUserBehaviorLog: (userId?: number, page: number = 1, pageSize: number = 20) => {
-    const params: any = { page, pageSize }
+  getUserBehaviorLog: (userId?: number, pageToken?: string, pageSize: number = 20) => {
+    const params: any = { pageSize }
     if (userId) {
       params.userId = userId
     }
+    if (pageToken) {
+      params.pageToken = pageToken
+    }
     return request.get('/admin/logs/user-behavior', { params })
   }
 }
@@ -76,6 +76,15 @@ export const bookingApi = {
     return request.post('/booking/check', data)
   },
 
+  /**
+   * 批量预订检查 - 一次比较多个候选方案（改期、续住、换房型）
+   * @param candidates 候选方案数组
+   * @returns 与 candidates 顺序一致的检查结果数组，每项结构同 check
+   */
+  checkBatch: (candidates: BookingCheckParams[]) => {
+    return request.post('/booking/check/batch', candidates)
+  },
+
   /**
    * 创建订单 - 核心预订接口
    * 包含事务控制：校验库存 -> 计算价格 -> 分配营位 -> 保存订单
@@ -96,13 +105,12 @@ export const bookingApi = {
   },
 
   /**
-   * 获取我的订单列表
-   * @param userId 用户ID
+   * 获取我的订单列表（当前用户由请求头中的 Token 确定）
    * @param status 订单状态 (可选, 0: 待支付, 1: 已支付, 2: 已取消)
    * @returns 订单列表
    */
-  getMyList: (userId: number, status?: number) => {
-    const params: any = { userId }
+  getMyList: (status?: number) => {
+    const params: any = {}
     if (status !== undefined) {
       params.status = status
     }
@@ -38,6 +38,19 @@ export interface CalendarItem {
   stock: number
 }
 
+export interface AvailabilitySearchItem {
+  typeId: number
+  typeName: string
+  basePrice: number
+  maxGuests: number
+  imageUrl?: string
+  totalSites: number
+  minAvailable: number
+  available: boolean
+  nights: number
+  totalPrice: number
+}
+
 export interface PriceCalendarResponse {
   typeId: number
   typeName: string
@@ -74,7 +87,7 @@ export const resourceApi = {
 
   /**
    * 获取价格日历
-   * 返回指定日期范围内，每天的价格和库存情况
+   * 返回指定日期范围内（含首尾，最多 366 天），每天的价格和库存情况
    * @param typeId 房型ID
    * @param startDate 开始日期 (格式: yyyy-MM-dd)
    * @param endDate 结束日期 (格式: yyyy-MM-dd)
@@ -162,5 +175,52 @@ export const resourceApi = {
     return request.get('/availability/query', {
       params: { kind, typeId, startDate, endDate }
     })
+  },
+
+  /**
+   * 跨房型可用性搜索：一次返回所有可容纳 guests 人的房型在入住区间内的最少空闲营位数与总价
+   * @param checkIn 入住日期 (格式: yyyy-MM-dd)
+   * @param checkOut 离店日期 (格式: yyyy-MM-dd)
+   * @param guests 入住人数 (可选)
+   * @param maxPrice 住宿总价上限 (可选)
+   */
+  searchAvailability: (checkIn: string, checkOut: string, guests?: number, maxPrice?: number) => {
+    const params: any = { checkIn, checkOut }
+    if (guests !== undefined) {
+      params.guests = guests
+    }
+    if (maxPrice !== undefined) {
+      params.maxPrice = maxPrice
+    }
+    return request.get('/search/availability', { params })
+  },
+
+  /**
+   * 灵活日期搜索：返回区间内可连住 nights 晚的所有入住日及总价，按总价升序
+   * @param typeId 房型ID
+   * @param startDate 区间开始日期 (格式: yyyy-MM-dd)
+   * @param endDate 区间结束日期（含当晚）(格式: yyyy-MM-dd)
+   * @param nights 连住晚数
+   */
+  searchFlexible: (typeId: number, startDate: string, endDate: string, nights: number) => {
+    return request.get('/search/flexible', {
+      params: { typeId, startDate, endDate, nights }
+    })
+  },
+
+  /**
+   * 最低价搜索：返回区间内连住 nights 晚总价最低的 k 个入住日
+   * @param typeId 房型ID
+   * @param startDate 区间开始日期 (格式: yyyy-MM-dd)
+   * @param endDate 区间结束日期（含当晚）(格式: yyyy-MM-dd)
+   * @param nights 连住晚数
+   * @param k 返回数量 (可选，默认 5，最多 100)
+   */
+  searchCheapest: (typeId: number, startDate: string, endDate: string, nights: number, k?: number) => {
+    const params: any = { typeId, startDate, endDate, nights }
+    if (k !== undefined) {
+      params.k = k
+    }
+    return request.get('/search/cheapest', { params })
   }
-}
\ No newline at end of file
+}
@@ -171,10 +171,10 @@ export const useBookingModule = () => {
   const bookingLoading = ref(false)
   
   // 获取我的订单
-  const loadMyBookings = async (userId: number, status?: number) => {
+  const loadMyBookings = async (status?: number) => {
     bookingLoading.value = true
     try {
-      const response = await bookingApi.getMyList(userId, status)
+      const response = await bookingApi.getMyList(status)
       myBookings.value = response.data
     } catch (error) {
       ElMessage.error('加载订单列表失败')
@@ -277,9 +277,8 @@ export const useBookingModule = () => {
       ElMessage.success('支付成功')
       
       // 刷新订单列表
-      const userId = parseInt(localStorage.getItem('userId') || '0')
-      if (userId) {
-        await loadMyBookings(userId)
+      if (localStorage.getItem('token')) {
+        await loadMyBookings()
       }
       
       return response.data
@@ -296,9 +295,8 @@ export const useBookingModule = () => {
       ElMessage.success('订单已取消')
       
       // 刷新订单列表
-      const userId = parseInt(localStorage.getItem('userId') || '0')
-      if (userId) {
-        await loadMyBookings(userId)
+      if (localStorage.getItem('token')) {
+        await loadMyBookings()
       }
       
       return response.data
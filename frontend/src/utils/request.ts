@@ -58,6 +58,8 @@ instance.interceptors.response.use(
         window.location.href = '/login'
       } else if (status === 403) {
         ElMessage.error('无权限访问')
+      } else if (status === 429) {
+        ElMessage.error(data?.msg || '请求过于频繁，请稍后再试')
       } else if (status === 404) {
         ElMessage.error('请求资源不存在')
       } else if (status === 500) {
@@ -87,6 +87,56 @@ CREATE TABLE IF NOT EXISTS booking_equips (
     FOREIGN KEY (equip_id) REFERENCES equipments(equip_id)
 );
 
+-- 创建装备每日占用台账（由下单/取消在同一事务内维护）
+CREATE TABLE IF NOT EXISTS equipment_daily_usage (
+    equip_id BIGINT NOT NULL,
+    night DATE NOT NULL,
+    reserved INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (equip_id, night),
+    FOREIGN KEY (equip_id) REFERENCES equipments(equip_id)
+);
+
+-- 由现有预订回填台账（已有数据时执行一次，重复执行不会重复累加）
+INSERT INTO equipment_daily_usage (equip_id, night, reserved)
+SELECT be.equip_id, n.night::date, SUM(be.quantity)
+FROM booking_equips be
+JOIN bookings b ON be.booking_id = b.booking_id
+CROSS JOIN LATERAL generate_series(b.check_in, b.check_out - 1, INTERVAL '1 day') AS n(night)
+WHERE b.status IN (1, 2)
+GROUP BY be.equip_id, n.night::date
+ON CONFLICT (equip_id, night) DO NOTHING;
+
+-- 创建每日收入汇总表（由支付/取消/调价在同一事务内维护，可通过 /admin/revenue/rollup/rebuild 重建）
+CREATE TABLE IF NOT EXISTS daily_revenue_rollup (
+    night DATE NOT NULL,
+    type_id BIGINT NOT NULL,
+    paid_count INTEGER NOT NULL DEFAULT 0,
+    revenue_cents BIGINT NOT NULL DEFAULT 0,
+    arrival_count INTEGER NOT NULL DEFAULT 0,
+    arrival_revenue_cents BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (night, type_id),
+    FOREIGN KEY (type_id) REFERENCES site_types(type_id)
+);
+
+-- 由现有已支付预订回填汇总（已有数据时执行一次，重复执行不会重复累加）
+INSERT INTO daily_revenue_rollup (night, type_id, paid_count, revenue_cents, arrival_count, arrival_revenue_cents)
+SELECT night, type_id, SUM(paid_count), SUM(revenue_cents), SUM(arrival_count), SUM(arrival_revenue_cents)
+FROM (
+    SELECT n.night::date AS night,
+           b.type_id,
+           CASE WHEN n.night < b.check_out THEN 1 ELSE 0 END AS paid_count,
+           CASE WHEN n.night < b.check_out
+                THEN ROUND(b.total_price * 100 / (b.check_out - b.check_in)) ELSE 0 END AS revenue_cents,
+           CASE WHEN n.night = b.check_in THEN 1 ELSE 0 END AS arrival_count,
+           CASE WHEN n.night = b.check_in THEN ROUND(b.total_price * 100) ELSE 0 END AS arrival_revenue_cents
+    FROM bookings b
+    CROSS JOIN LATERAL generate_series(b.check_in, GREATEST(b.check_out, b.check_in + 1) - 1,
+                                       INTERVAL '1 day') AS n(night)
+    WHERE b.status = 2
+) t
+GROUP BY night, type_id
+ON CONFLICT (night, type_id) DO NOTHING;
+
 -- 创建操作日志表
 CREATE TABLE IF NOT EXISTS operation_logs (
     log_id BIGSERIAL PRIMARY KEY,
@@ -104,11 +154,26 @@ CREATE INDEX IF NOT EXISTS idx_bookings_type_id ON bookings(type_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_site_id ON bookings(site_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_check_in_out ON bookings(check_in, check_out);
 CREATE INDEX IF NOT EXISTS idx_bookings_status ON bookings(status);
+CREATE INDEX IF NOT EXISTS idx_bookings_pending_create_time ON bookings(create_time) WHERE status = 1;
 CREATE INDEX IF NOT EXISTS idx_sites_type_id ON sites(type_id);
 CREATE INDEX IF NOT EXISTS idx_daily_prices_type_date ON daily_prices(type_id, specific_date);
 CREATE INDEX IF NOT EXISTS idx_booking_equips_booking_id ON booking_equips(booking_id);
 CREATE INDEX IF NOT EXISTS idx_booking_equips_equip_id ON booking_equips(equip_id);
-CREATE INDEX IF NOT EXISTS idx_operation_logs_log_time ON operation_logs(log_time);
+CREATE INDEX IF NOT EXISTS idx_operation_logs_time_id ON operation_logs(log_time DESC, log_id DESC);
+CREATE INDEX IF NOT EXISTS idx_operation_logs_operation_time_id ON operation_logs(operation, log_time DESC, log_id DESC);
+CREATE INDEX IF NOT EXISTS idx_operation_logs_operator_time_id ON operation_logs(operator_id, log_time DESC, log_id DESC);
+DROP INDEX IF EXISTS idx_operation_logs_log_time;
+
+-- 同一营位的有效预订（1: 待支付, 2: 已支付）入住区间不得重叠，由数据库兜底防止超订
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'bookings_site_no_overlap') THEN
+        ALTER TABLE bookings ADD CONSTRAINT bookings_site_no_overlap
+            EXCLUDE USING gist (site_id WITH =, daterange(check_in, check_out) WITH &&)
+            WHERE (status IN (1, 2));
+    END IF;
+END $$;
 
 -- 创建日收入视图
 CREATE OR REPLACE VIEW view_daily_revenue AS